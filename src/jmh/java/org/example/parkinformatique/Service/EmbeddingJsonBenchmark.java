@@ -0,0 +1,43 @@
+package org.example.parkinformatique.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.parkinformatique.Service.rag.VectorMath;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a stored embedding (JSONB text, 768 doubles): EmbeddingService.fromJson (boxed
+ * List&lt;Double&gt;) against the tree-to-float[] path used by the index loader and providers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmbeddingJsonBenchmark {
+
+    @Param({"768"})
+    int dim;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private String json;
+
+    @Setup
+    public void setup() throws Exception {
+        SplittableRandom rnd = new SplittableRandom(42);
+        double[] v = new double[dim];
+        for (int i = 0; i < dim; i++) v[i] = rnd.nextDouble() * 2 - 1;
+        json = mapper.writeValueAsString(v);
+    }
+
+    @Benchmark
+    public List<Double> embeddingServiceFromJson() throws Exception {
+        return EmbeddingService.fromJson(json, mapper);
+    }
+
+    @Benchmark
+    public float[] vectorMathFromJson() throws Exception {
+        return VectorMath.fromJson(mapper.readTree(json));
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.parkinformatique.Service;
+
+import org.example.parkinformatique.entities.KbEmbedding;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same as {@link RetrievalBenchmark} with search-mode=hnsw. The graph keeps full-precision
+ * rows, so quantization is not a parameter here; the graph build is part of the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HnswRetrievalBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int chunks;
+
+    @Param({"768"})
+    int dim;
+
+    @Param({"8"})
+    int topK;
+
+    @Param({"64"})
+    int efSearch;
+
+    private ChatbotService service;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        KbVectorIndex index = new KbVectorIndex(null, null, null);
+        index.setSearchMode("hnsw");
+        index.setHnswM(16);
+        index.setHnswEfConstruction(200);
+        index.setHnswEfSearch(efSearch);
+        index.setQuantization("none");
+        SplittableRandom rnd = new SplittableRandom(42);
+        RetrievalBenchmark.fill(index, chunks, dim, rnd);
+        service = new ChatbotService(index, null, null);
+        queries = RetrievalBenchmark.queries(rnd, dim);
+    }
+
+    @Benchmark
+    public List<KbEmbedding> findRelevantChunks() {
+        float[] q = queries[next++ & (queries.length - 1)];
+        return service.findRelevantChunks(q, topK);
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.parkinformatique.Service;
+
+import org.example.parkinformatique.Service.rag.KbChunk;
+import org.example.parkinformatique.Service.rag.VectorMath;
+import org.example.parkinformatique.entities.KbEmbedding;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChatbotService.findRelevantChunks on the resident index (exact scan), without Spring nor
+ * database: random unit vectors, a fresh query per call. Every setting @Value would inject
+ * is set here, with application.properties values unless a @Param overrides it.
+ * HNSW ignores the quantization, it has its own {@link HnswRetrievalBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RetrievalBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int chunks;
+
+    @Param({"768"})
+    int dim;
+
+    @Param({"8"})
+    int topK;
+
+    @Param({"none", "int8", "binary"})
+    String quantization;
+
+    @Param({"50000"})
+    int parallelMinRows;
+
+    private ChatbotService service;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        KbVectorIndex index = new KbVectorIndex(null, null, null);
+        index.setSearchMode("exact");
+        index.setQuantization(quantization);
+        index.setRerankFactor(8);
+        index.setRerankSource("none"); // codes only, as configured by default
+        index.setParallelMinRows(parallelMinRows);
+        SplittableRandom rnd = new SplittableRandom(42);
+        fill(index, chunks, dim, rnd);
+        service = new ChatbotService(index, null, null);
+        queries = queries(rnd, dim);
+    }
+
+    @Benchmark
+    public List<KbEmbedding> findRelevantChunks() {
+        float[] q = queries[next++ & (queries.length - 1)];
+        return service.findRelevantChunks(q, topK);
+    }
+
+    /** {@code chunks} random rows, 8 per article, then marked loaded as after load(). */
+    static void fill(KbVectorIndex index, int chunks, int dim, SplittableRandom rnd) {
+        List<KbChunk> cs = new ArrayList<>(chunks);
+        List<float[]> vs = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            cs.add(new KbChunk(i, i / 8, i % 8, "chunk " + i, 200));
+            vs.add(randomVector(rnd, dim));
+        }
+        index.rebuild(cs, vs);
+        index.setLoaded(true); // search() must not reach for the repository
+    }
+
+    /** 64 queries, a power of two for the round robin. */
+    static float[][] queries(SplittableRandom rnd, int dim) {
+        float[][] qs = new float[64][];
+        for (int i = 0; i < qs.length; i++) qs[i] = randomVector(rnd, dim);
+        return qs;
+    }
+
+    static float[] randomVector(SplittableRandom rnd, int dim) {
+        float[] v = new float[dim];
+        for (int i = 0; i < dim; i++) v[i] = (float) (rnd.nextDouble() * 2 - 1);
+        return VectorMath.normalize(v);
+    }
+}
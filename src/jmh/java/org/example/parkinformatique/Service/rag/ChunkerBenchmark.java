@@ -0,0 +1,73 @@
+package org.example.parkinformatique.Service.rag;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Article chunking as done by ChatbotIndexerService.chunk (title, blank line, content,
+ * default 800 / 150 settings) on generated markdown: headings, paragraphs, lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkerBenchmark {
+
+    private static final String[] WORDS = {
+            "imprimante", "réseau", "poste", "mot", "de", "passe", "redémarrer", "le", "service",
+            "vérifier", "câble", "VPN", "connexion", "utilisateur", "erreur", "0x80070005", "la",
+            "mise", "à", "jour", "Windows", "pilote", "ticket", "technicien", "et", "puis"};
+
+    @Param({"2000", "20000", "200000"})
+    int articleChars;
+
+    private final TextChunker chunker = new TextChunker(800, 150);
+    private String title;
+    private String content;
+
+    @Setup
+    public void setup() {
+        SplittableRandom rnd = new SplittableRandom(42);
+        title = "Procédure : réinitialiser l'accès VPN";
+        StringBuilder b = new StringBuilder(articleChars + 200);
+        while (b.length() < articleChars) {
+            switch (rnd.nextInt(6)) {
+                case 0 -> b.append("## ").append(sentence(rnd, 4)).append("\n\n");
+                case 1 -> {
+                    for (int i = 1, n = 2 + rnd.nextInt(4); i <= n; i++) b.append(i).append(". ").append(sentence(rnd, 8)).append('\n');
+                    b.append('\n');
+                }
+                case 2 -> {
+                    for (int i = 0, n = 2 + rnd.nextInt(4); i < n; i++) b.append("- ").append(sentence(rnd, 6)).append('\n');
+                    b.append('\n');
+                }
+                default -> {
+                    for (int i = 0, n = 2 + rnd.nextInt(6); i < n; i++) b.append(sentence(rnd, 8 + rnd.nextInt(20))).append(' ');
+                    b.append("\n\n");
+                }
+            }
+        }
+        content = b.toString();
+    }
+
+    private static String sentence(SplittableRandom rnd, int words) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) s.append(' ');
+            s.append(WORDS[rnd.nextInt(WORDS.length)]);
+        }
+        return s.append('.').toString();
+    }
+
+    @Benchmark
+    public List<String> chunk() {
+        List<String> out = new ArrayList<>();
+        TextChunker.Splitter s = chunker.start(out::add);
+        s.append(title).append("\n\n");
+        s.append(content).finish();
+        return out;
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.parkinformatique.Service.rag;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OllamaStreamDecoder on a recorded-like /api/chat or /api/generate answer (one NDJSON line
+ * per token, the last one with stats and, for generate, the context), cut into network
+ * buffers that do not line up with the lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OllamaStreamBenchmark {
+
+    @Param({"chat", "generate"})
+    String api;
+
+    @Param({"200"})
+    int tokens;
+
+    @Param({"512"})
+    int bufferBytes;
+
+    private final JsonFactory factory = new JsonFactory();
+    private List<byte[]> buffers;
+
+    @Setup
+    public void setup() {
+        StringBuilder b = new StringBuilder();
+        boolean chat = "chat".equals(api);
+        for (int i = 0; i < tokens; i++) {
+            String token = i % 7 == 0 ? " \\u00e9tape" : " mot" + i;
+            b.append("{\"model\":\"llama3.2\",\"created_at\":\"2026-01-01T10:00:00.").append(i).append("Z\",");
+            if (chat) b.append("\"message\":{\"role\":\"assistant\",\"content\":\"").append(token).append("\"},");
+            else b.append("\"response\":\"").append(token).append("\",");
+            b.append("\"done\":false}\n");
+        }
+        b.append("{\"model\":\"llama3.2\",\"created_at\":\"2026-01-01T10:00:01Z\",");
+        b.append(chat ? "\"message\":{\"role\":\"assistant\",\"content\":\"\"}," : "\"response\":\"\",");
+        b.append("\"done\":true,\"done_reason\":\"stop\",");
+        if (!chat) {
+            b.append("\"context\":[");
+            for (int i = 0; i < 1500; i++) b.append(i > 0 ? "," : "").append(128000 + i);
+            b.append("],");
+        }
+        b.append("\"total_duration\":5043500667,\"load_duration\":5025959,\"prompt_eval_count\":812,")
+                .append("\"eval_count\":").append(tokens).append(",\"eval_duration\":4890000000}\n");
+
+        byte[] all = b.toString().getBytes(StandardCharsets.UTF_8);
+        buffers = new ArrayList<>();
+        for (int from = 0; from < all.length; from += bufferBytes) {
+            byte[] part = new byte[Math.min(bufferBytes, all.length - from)];
+            System.arraycopy(all, from, part, 0, part.length);
+            buffers.add(part);
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) {
+        OllamaStreamDecoder decoder = new OllamaStreamDecoder(factory);
+        for (byte[] part : buffers) decoder.feed(ByteBuffer.wrap(part), bh::consume);
+        decoder.finish(bh::consume);
+    }
+}
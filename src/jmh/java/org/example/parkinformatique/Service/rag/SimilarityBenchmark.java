@@ -0,0 +1,61 @@
+package org.example.parkinformatique.Service.rag;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cosine kernel on unit vectors (a dot product), float32 and int8 rows: Vector API path
+ * against the scalar loop. simd() is false when jdk.incubator.vector is not resolved, then
+ * both measure the same.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SimilarityBenchmark {
+
+    @Param({"384", "768", "1536"})
+    int dim;
+
+    private float[] q;
+    private float[] rows;
+    private byte[] codes;
+    private int offset;
+
+    @Setup
+    public void setup() {
+        SplittableRandom rnd = new SplittableRandom(42);
+        q = new float[dim];
+        rows = new float[dim * 256];
+        for (int i = 0; i < q.length; i++) q[i] = (float) rnd.nextDouble();
+        for (int i = 0; i < rows.length; i++) rows[i] = (float) rnd.nextDouble();
+        codes = new byte[rows.length];
+        for (int i = 0; i < codes.length; i++) codes[i] = (byte) (rnd.nextInt(255) - 127);
+    }
+
+    private int nextRow() {
+        offset = (offset + dim) % rows.length; // walk the rows like a scan does
+        return offset;
+    }
+
+    @Benchmark
+    public float dot() {
+        return VectorMath.dot(q, rows, nextRow(), dim);
+    }
+
+    @Benchmark
+    public float dotScalar() {
+        return VectorMath.dotScalar(q, rows, nextRow(), dim);
+    }
+
+    @Benchmark
+    public float dotInt8() {
+        return Quantizer.dotInt8(q, codes, nextRow(), dim);
+    }
+
+    @Benchmark
+    public float dotInt8Scalar() {
+        return Quantizer.dotInt8Scalar(q, codes, nextRow(), dim);
+    }
+}
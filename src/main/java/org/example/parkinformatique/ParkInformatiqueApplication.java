@@ -4,10 +4,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EntityScan(basePackages = "org.example.parkinformatique.entities")
 @EnableJpaRepositories(basePackages = "org.example.parkinformatique.repositories")
+@EnableScheduling
 public class ParkInformatiqueApplication {
 
     public static void main(String[] args) {
@@ -1,17 +1,27 @@
 package org.example.parkinformatique.Service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.example.parkinformatique.Service.rag.ContentHash;
+import org.example.parkinformatique.Service.rag.KbChunk;
+import org.example.parkinformatique.Service.rag.ReindexJob;
+import org.example.parkinformatique.Service.rag.TextChunker;
+import org.example.parkinformatique.Service.rag.TokenEstimator;
+import org.example.parkinformatique.Service.rag.VectorCodec;
+import org.example.parkinformatique.Service.rag.VectorMath;
 import org.example.parkinformatique.entities.BaseConnaissance;
 import org.example.parkinformatique.entities.KbEmbedding;
 import org.example.parkinformatique.repositories.BaseConnaissanceRepository;
 import org.example.parkinformatique.repositories.KbEmbeddingRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.function.Predicate;
 
 @Service
 @RequiredArgsConstructor
@@ -19,53 +29,255 @@ public class ChatbotIndexerService {
     private final BaseConnaissanceRepository kbRepo;
     private final KbEmbeddingRepository embRepo;
     private final EmbeddingService embeddingService;
-    private final ObjectMapper mapper;
+    private final KbVectorIndex vectorIndex;
+    private final TransactionTemplate tx;
 
-    @Value("${rag.rag.max-chars-per-chunk:1200}")
+    @Value("${rag.rag.max-chars-per-chunk:800}")
     private int maxCharsPerChunk;
 
-    @Transactional
+    // repeated at the head of the next chunk when a paragraph had to be cut (max maxChars/4)
+    @Value("${rag.rag.chunk-overlap-chars:150}")
+    private int chunkOverlapChars;
+
+    @Value("${rag.rag.embed-batch-size:32}")
+    private int embedBatchSize;
+
+    @Value("${rag.rag.embed-concurrency:4}")
+    private int embedConcurrency;
+
+    // pgvector: rows are inserted with their vector column (see KbEmbeddingRepository#insertWithVector)
+    @Value("${rag.rag.search-mode:exact}")
+    private String searchMode;
+
+    @Value("${rag.rag.vector-dtype:float32}")
+    private String vectorDtype;
+
+    private static final int ARTICLE_PAGE = 100;
+    // part of the article hash: bump when chunk boundaries change so articles are re-chunked
+    private static final String CHUNKER_VERSION = "structured-1";
+
+    private record PendingChunk(BaseConnaissance article, int index, String text, String contentHash) {}
+
+    /** What a reindex must do for one article; computed before any embedding call. */
+    private record ArticlePlan(BaseConnaissance article, String articleHash,
+                               List<KbEmbedding> keep, List<float[]> keepVectors,
+                               List<KbEmbedding> delete, List<PendingChunk> embed) {}
+
+    private record EmbeddedBatch(List<ArticlePlan> plans, Map<PendingChunk, float[]> vectors) {}
+
+    /** Synchronous run, kept for callers that want the count directly. */
     public int reindexAll() throws Exception {
-        List<BaseConnaissance> articles = kbRepo.findAll();
-        int count = 0;
-        for (BaseConnaissance a : articles) {
-            // Clear old
-            embRepo.deleteByArticle_Id(a.getId());
-
-            String base = (a.getTitre() == null ? "" : a.getTitre() + "\n\n") +
-                    (a.getContenu() == null ? "" : a.getContenu());
-            List<String> chunks = chunk(base, maxCharsPerChunk);
-
-            for (int i = 0; i < chunks.size(); i++) {
-                String text = chunks.get(i);
-                List<Double> vec = embeddingService.embed(text);
-                KbEmbedding e = new KbEmbedding();
-                e.setArticle(a);
-                e.setChunkIndex(i);
-                e.setChunkText(text);
-                e.setEmbeddingJson(mapper.valueToTree(vec));
-                embRepo.save(e);
-                count++;
+        ReindexJob job = new ReindexJob("sync");
+        reindexAll(job);
+        job.finish();
+        return job.chunksEmbedded();
+    }
+
+    /**
+     * Incremental reindex: articles whose hash is unchanged are skipped, unchanged chunks
+     * keep their vector, only new or modified chunks are embedded (in batches of
+     * embed-batch-size across articles), and rows of deleted articles are removed.
+     * Each batch of articles is committed on its own, so a cancelled or failed run keeps its
+     * progress and the next run resumes from there.
+     * <p>
+     * The stages run concurrently, linked by bounded Reactor queues (backpressure):
+     * read + chunk + plan on a boundedElastic thread, up to embed-concurrency
+     * /api/embed calls in flight, and a single writer thread committing batches in order.
+     */
+    public void reindexAll(ReindexJob job) throws Exception {
+        List<Long> ids = kbRepo.findAllIds();
+        job.start(ids.size());
+
+        Map<Long, Set<String>> indexedHashes = new HashMap<>();
+        for (KbEmbeddingRepository.ArticleHashView v : embRepo.findArticleHashes()) {
+            indexedHashes.computeIfAbsent(v.getArticleId(), k -> new HashSet<>()).add(v.getArticleHash());
+        }
+        Set<Long> orphans = new HashSet<>(indexedHashes.keySet());
+        orphans.removeAll(ids);
+
+        List<List<Long>> pages = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += ARTICLE_PAGE) {
+            pages.add(ids.subList(from, Math.min(ids.size(), from + ARTICLE_PAGE)));
+        }
+
+        Scheduler writer = Schedulers.newSingle("kb-index-writer");
+        try {
+            Flux.fromIterable(pages)
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .takeWhile(page -> !job.isCancelled())
+                    // 1) read
+                    .concatMapIterable(kbRepo::findAllById, 1)
+                    .filter(a -> {
+                        Set<String> current = indexedHashes.get(a.getId());
+                        boolean untouched = current != null && current.size() == 1
+                                && articleHash(a).equals(current.iterator().next());
+                        if (untouched) job.articleSkipped();
+                        return !untouched;
+                    })
+                    // 2) chunk + diff
+                    .map(this::plan)
+                    .bufferUntil(chunkBudget(), false)
+                    // 3) embed, several batches in flight, results kept in order
+                    .flatMapSequential(this::embed, Math.max(1, embedConcurrency), 1)
+                    // 4) write, one transaction per batch
+                    .publishOn(writer, 2)
+                    .takeWhile(b -> !job.isCancelled())
+                    .doOnNext(b -> {
+                        tx.executeWithoutResult(s -> b.plans().forEach(p -> write(p, b.vectors())));
+                        job.batchCommitted(b.plans().size(), b.vectors().size());
+                    })
+                    .blockLast();
+        } finally {
+            writer.dispose();
+        }
+
+        if (!job.isCancelled()) {
+            // articles deleted since the last run
+            tx.executeWithoutResult(s -> orphans.forEach(id -> {
+                embRepo.deleteByArticle_Id(id);
+                vectorIndex.removeArticle(id);
+            }));
+        }
+    }
+
+    /** Reindexes one article (no-op if its content did not change). */
+    public int reindexArticle(Long articleId) throws Exception {
+        BaseConnaissance a = kbRepo.findById(articleId)
+                .orElseThrow(() -> new IllegalArgumentException("Article introuvable: " + articleId));
+        ReindexJob job = new ReindexJob("article-" + articleId);
+        job.start(1);
+        commit(List.of(plan(a)), job);
+        return job.chunksEmbedded();
+    }
+
+    /**
+     * Diffs the article's chunks against its stored rows by content hash: matching rows are
+     * kept (re-numbered), the rest are deleted, and chunks without a match are queued for embedding.
+     */
+    private ArticlePlan plan(BaseConnaissance a) {
+        String articleHash = articleHash(a);
+        List<String> chunks = chunk(a);
+
+        Map<String, Deque<KbEmbedding>> existing = new HashMap<>();
+        for (KbEmbedding e : embRepo.findByArticle_Id(a.getId())) {
+            existing.computeIfAbsent(String.valueOf(e.getContentHash()), k -> new ArrayDeque<>()).add(e);
+        }
+
+        List<KbEmbedding> keep = new ArrayList<>();
+        List<float[]> keepVectors = new ArrayList<>();
+        List<KbEmbedding> delete = new ArrayList<>();
+        List<PendingChunk> embed = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            String text = chunks.get(i);
+            String hash = ContentHash.sha256(embeddingService.model(), text);
+            Deque<KbEmbedding> same = existing.get(hash);
+            KbEmbedding reuse = same == null ? null : same.poll();
+            float[] v = reuse == null ? null : reuse.getVector();
+            if (v != null) {
+                reuse.setChunkIndex(i);
+                if (reuse.getTokenCount() == null) reuse.setTokenCount(TokenEstimator.estimate(text));
+                reuse.setArticleHash(articleHash);
+                keep.add(reuse);
+                keepVectors.add(v);
+            } else {
+                if (reuse != null) delete.add(reuse);
+                embed.add(new PendingChunk(a, i, text, hash));
             }
+        }
+        existing.values().forEach(delete::addAll);
+        return new ArticlePlan(a, articleHash, keep, keepVectors, delete, embed);
+    }
+
+    /** bufferUntil predicate closing a batch once it holds embed-batch-size chunks to embed. */
+    private Predicate<ArticlePlan> chunkBudget() {
+        int[] pending = {0};
+        return p -> {
+            pending[0] += p.embed().size();
+            if (pending[0] < embedBatchSize) return false;
+            pending[0] = 0;
+            return true;
+        };
+    }
 
+    private Mono<EmbeddedBatch> embed(List<ArticlePlan> batch) {
+        List<PendingChunk> pending = batch.stream().flatMap(p -> p.embed().stream()).toList();
+        List<List<PendingChunk>> parts = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += embedBatchSize) {
+            parts.add(pending.subList(from, Math.min(pending.size(), from + embedBatchSize)));
         }
-        return count;
+        return Flux.fromIterable(parts)
+                .concatMap(part -> embeddingService.embedBatchAsync(part.stream().map(PendingChunk::text).toList()))
+                .collectList()
+                .map(results -> {
+                    Map<PendingChunk, float[]> vectorOf = new IdentityHashMap<>();
+                    int i = 0;
+                    for (List<float[]> r : results) {
+                        for (float[] v : r) vectorOf.put(pending.get(i++), v);
+                    }
+                    return new EmbeddedBatch(batch, vectorOf);
+                });
     }
 
-    private List<String> chunk(String text, int maxChars) {
-        List<String> out = new ArrayList<>();
-        if (text == null || text.isBlank()) return out;
-        String[] parts = text.split("(?<=\\.) "); // naive sentence split
-        StringBuilder cur = new StringBuilder();
-        for (String p : parts) {
-            if (cur.length() + p.length() + 1 > maxChars) {
-                out.add(cur.toString());
-                cur.setLength(0);
+    /** Embeds the batch's pending chunks, then writes the whole batch in one transaction. */
+    private void commit(List<ArticlePlan> batch, ReindexJob job) throws Exception {
+        if (batch.isEmpty()) return;
+        List<PendingChunk> pending = batch.stream().flatMap(p -> p.embed().stream()).toList();
+        List<float[]> vecs = new ArrayList<>(pending.size());
+        for (int from = 0; from < pending.size(); from += embedBatchSize) {
+            List<PendingChunk> part = pending.subList(from, Math.min(pending.size(), from + embedBatchSize));
+            vecs.addAll(embeddingService.embedBatch(part.stream().map(PendingChunk::text).toList()));
+        }
+
+        Map<PendingChunk, float[]> vectorOf = new IdentityHashMap<>();
+        for (int i = 0; i < pending.size(); i++) vectorOf.put(pending.get(i), vecs.get(i));
+
+        tx.executeWithoutResult(s -> {
+            for (ArticlePlan p : batch) write(p, vectorOf);
+        });
+        job.batchCommitted(batch.size(), pending.size());
+    }
+
+    private void write(ArticlePlan p, Map<PendingChunk, float[]> vectorOf) {
+        embRepo.deleteAll(p.delete());
+        List<KbChunk> indexed = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>(p.keepVectors());
+        for (KbEmbedding kept : embRepo.saveAll(p.keep())) indexed.add(KbVectorIndex.toChunk(kept));
+
+        for (PendingChunk c : p.embed()) {
+            float[] v = vectorOf.get(c);
+            KbEmbedding e = new KbEmbedding();
+            e.setArticle(p.article());
+            e.setChunkIndex(c.index());
+            e.setChunkText(c.text());
+            e.setTokenCount(TokenEstimator.estimate(c.text()));
+            e.setContentHash(c.contentHash());
+            e.setArticleHash(p.articleHash());
+            e.setVector(v);
+            if ("pgvector".equalsIgnoreCase(searchMode)) {
+                byte[] bin = VectorCodec.encode(v, VectorCodec.dtype(vectorDtype), VectorCodec.modelHash(embeddingService.model()));
+                e.setId(embRepo.insertWithVector(p.article().getId(), c.text(), bin, c.index(), e.getTokenCount(),
+                        c.contentHash(), p.articleHash(), VectorMath.toPgVector(v)));
+            } else {
+                embRepo.save(e);
             }
-            if (cur.length() > 0) cur.append(' ');
-            cur.append(p);
+            indexed.add(KbVectorIndex.toChunk(e));
+            vectors.add(v);
         }
-        if (cur.length() > 0) out.add(cur.toString());
+        // applied after commit
+        vectorIndex.replaceArticle(p.article().getId(), indexed, vectors);
+    }
+
+    private String articleHash(BaseConnaissance a) {
+        return ContentHash.sha256(embeddingService.model(), CHUNKER_VERSION, String.valueOf(maxCharsPerChunk),
+                String.valueOf(chunkOverlapChars), a.getTitre(), a.getContenu());
+    }
+
+    /** Title then content, cut on headings/paragraphs/list items first (see {@link TextChunker}). */
+    private List<String> chunk(BaseConnaissance a) {
+        List<String> out = new ArrayList<>();
+        TextChunker.Splitter s = new TextChunker(maxCharsPerChunk, chunkOverlapChars).start(out::add);
+        if (a.getTitre() != null) s.append(a.getTitre()).append("\n\n");
+        s.append(a.getContenu()).finish();
         return out;
     }
 }
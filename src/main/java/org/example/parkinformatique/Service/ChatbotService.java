@@ -1,45 +1,77 @@
-
 package org.example.parkinformatique.Service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.parkinformatique.Service.rag.KbChunk;
+import org.example.parkinformatique.Service.rag.KbHit;
+import org.example.parkinformatique.Service.rag.VectorMath;
+import org.example.parkinformatique.entities.BaseConnaissance;
 import org.example.parkinformatique.entities.KbEmbedding;
+import org.example.parkinformatique.repositories.KbEmbeddingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class ChatbotService {
-    private final EmbeddingService embeddingService;
-    private final ObjectMapper objectMapper;
+    private final KbVectorIndex vectorIndex;
+    private final KbEmbeddingRepository embRepo;
+    private final KbTextIndex textIndex;
+
+    @Value("${rag.rag.search-mode:exact}")
+    private String searchMode;
 
     public List<KbEmbedding> findRelevantChunks(List<Double> questionEmbedding, int topK) {
-        List<KbEmbedding> all = embeddingService.getAllEmbeddings();
-        return all.stream()
-                .peek(e -> {
-
-                    if (e.getEmbedding() == null && e.getEmbeddingJson() != null) {
-                        e.setEmbedding(objectMapper.convertValue(
-                                e.getEmbeddingJson(), new TypeReference<List<Double>>() {}
-                        ));
-                    }
-                })
-                .filter(e -> e.getEmbedding() != null && e.getEmbedding().size() == questionEmbedding.size())
-                .map(e -> new AbstractMap.SimpleEntry<>(e, cosineSimilarity(questionEmbedding, e.getEmbedding())))
-                .sorted((a,b) -> Double.compare(b.getValue(), a.getValue()))
-                .limit(Math.max(1, topK))
-                .map(Map.Entry::getKey)
+        return findRelevantChunks(VectorMath.toFloats(questionEmbedding), topK);
+    }
+
+    /**
+     * Served from the resident index (no DB round trip, no JSON parsing), or ranked
+     * by PostgreSQL when search-mode=pgvector. pgvector errors fall back to the JSONB-loaded index.
+     */
+    public List<KbEmbedding> findRelevantChunks(float[] questionEmbedding, int topK) {
+        int k = Math.max(1, topK);
+        if (isPgvector()) {
+            try {
+                return embRepo.findNearest(VectorMath.toPgVector(questionEmbedding), k);
+            } catch (DataAccessException e) {
+                log.warn("pgvector search failed, falling back to in-memory index: {}", e.getMessage());
+                if (!vectorIndex.isLoaded()) vectorIndex.load();
+            }
+        }
+        return vectorIndex.search(questionEmbedding, k).stream()
+                .map(KbHit::chunk)
+                .map(ChatbotService::toEmbedding)
                 .toList();
     }
 
-    private double cosineSimilarity(List<Double> a, List<Double> b) {
-        double dot = 0, na = 0, nb = 0;
-        for (int i = 0; i < a.size(); i++) {
-            double x = a.get(i), y = b.get(i);
-            dot += x*y; na += x*x; nb += y*y;
+    /** BM25 ranking of the question's words (see {@link KbTextIndex}). */
+    public List<KbEmbedding> findKeywordChunks(String question, int topK) {
+        return textIndex.search(question, Math.max(1, topK)).stream()
+                .map(KbHit::chunk)
+                .map(ChatbotService::toEmbedding)
+                .toList();
+    }
+
+    public boolean isPgvector() {
+        return "pgvector".equalsIgnoreCase(searchMode);
+    }
+
+    private static KbEmbedding toEmbedding(KbChunk c) {
+        KbEmbedding e = new KbEmbedding();
+        e.setId(c.id());
+        e.setChunkIndex(c.chunkIndex());
+        e.setChunkText(c.text());
+        e.setTokenCount(c.tokens());
+        if (c.articleId() >= 0) {
+            BaseConnaissance a = new BaseConnaissance();
+            a.setId(c.articleId());
+            e.setArticle(a);
         }
-        return dot / (Math.sqrt(na) * Math.sqrt(nb) + 1e-9);
+        return e;
     }
 }
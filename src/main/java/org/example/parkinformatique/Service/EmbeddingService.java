@@ -2,69 +2,91 @@ package org.example.parkinformatique.Service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
-import org.example.parkinformatique.entities.KbEmbedding;
-import org.example.parkinformatique.repositories.KbEmbeddingRepository;
+import org.example.parkinformatique.Service.provider.EmbeddingProvider;
+import org.example.parkinformatique.Service.rag.LruTtlCache;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.BodyInserters;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
+import java.text.Normalizer;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
+/** Query cache and blocking helpers in front of the active {@link EmbeddingProvider}. */
 @Service
 @RequiredArgsConstructor
 public class EmbeddingService {
-    private final ObjectMapper mapper;
-    private final KbEmbeddingRepository kbRepo;
+    private final MeterRegistry meterRegistry;
+    private final EmbeddingProvider provider;
 
-    @Value("${rag.ollama.base-url:http://localhost:11434}")
-    private String baseUrl;
+    @Value("${rag.embedding-cache.max-size:1000}")
+    private int cacheMaxSize;
 
+    @Value("${rag.embedding-cache.ttl:1h}")
+    private Duration cacheTtl;
 
-    @Value("${rag.ollama.embedding-model:nomic-embed-text}")
-    private String embeddingModel;
+    // model + normalized question -> vector
+    private LruTtlCache<String, float[]> queryCache;
 
-    private WebClient client;
-
-    private WebClient client() {
-        if (client == null) {
-            client = WebClient.builder()
-                    .baseUrl(baseUrl)
-                    .codecs(c -> c.defaultCodecs().maxInMemorySize(8 * 1024 * 1024))
-                    .build();
-        }
-        return client;
+    @PostConstruct
+    void init() {
+        queryCache = new LruTtlCache<>(cacheMaxSize, cacheTtl);
+        FunctionCounter.builder("rag.embedding.cache.requests", queryCache, LruTtlCache::hits)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("rag.embedding.cache.requests", queryCache, LruTtlCache::misses)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("rag.embedding.cache.evictions", queryCache, LruTtlCache::evictions)
+                .register(meterRegistry);
+        Gauge.builder("rag.embedding.cache.size", queryCache, LruTtlCache::size)
+                .register(meterRegistry);
     }
 
+    /**
+     * Embeds several texts in one provider call (one /api/embed request with Ollama).
+     * Vectors come back in input order.
+     */
+    public List<float[]> embedBatch(List<String> texts) throws Exception {
+        return embedBatchAsync(texts).block(Duration.ofSeconds(120));
+    }
 
-    public List<Double> embed(String text) throws Exception {
-        JsonNode req = mapper.createObjectNode()
-                .put("model", embeddingModel)
-                .put("input", text)
-                .put("keep_alive", "1h");
+    /** Non-blocking form of {@link #embedBatch}, used by the indexer pipeline to keep several calls in flight. */
+    public Mono<List<float[]>> embedBatchAsync(List<String> texts) {
+        if (texts.isEmpty()) return Mono.just(List.of());
+        return provider.embed(texts);
+    }
 
-        String resp = client().post()
-                .uri("/api/embeddings")
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(BodyInserters.fromValue(mapper.writeValueAsString(req)))
-                .retrieve()
-                .bodyToMono(String.class)
-                .block(Duration.ofSeconds(60));
+    /**
+     * Embeds a user question, served from the LRU/TTL cache when the same normalized
+     * question was embedded recently with the same model. Returns a copy: a cache hit
+     * completes immediately, a miss is one provider call.
+     */
+    public Mono<float[]> embedQueryAsync(String question) {
+        String key = provider.model() + '\u0000' + normalize(question);
+        float[] cached = queryCache.get(key);
+        if (cached != null) return Mono.just(cached.clone());
+        return embedBatchAsync(List.of(question == null ? "" : question))
+                .map(vs -> {
+                    float[] v = vs.get(0);
+                    queryCache.put(key, v);
+                    return v.clone();
+                });
+    }
 
-        JsonNode node = mapper.readTree(resp);
-        JsonNode arr = node.get("embedding");
-        List<Double> vec = new ArrayList<>(arr.size());
-        arr.forEach(x -> vec.add(x.asDouble()));
-        return vec;
+    static String normalize(String text) {
+        if (text == null) return "";
+        String s = Normalizer.normalize(text, Normalizer.Form.NFC);
+        return s.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
     }
 
-    /** Load all KbEmbedding rows */
-    public List<KbEmbedding> getAllEmbeddings() {
-        return kbRepo.findAll();
+    public String model() {
+        return provider.model();
     }
 
     public static String toJson(List<Double> v, ObjectMapper mapper) throws Exception {
@@ -0,0 +1,123 @@
+package org.example.parkinformatique.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.parkinformatique.Service.rag.Bm25Index;
+import org.example.parkinformatique.Service.rag.KbChunk;
+import org.example.parkinformatique.Service.rag.TokenEstimator;
+import org.example.parkinformatique.Service.rag.KbHit;
+import org.example.parkinformatique.repositories.KbEmbeddingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * BM25 keyword index over kb_embedding.content, for what embeddings miss: error codes,
+ * printer models, software names pasted verbatim. Loaded at startup in every search mode
+ * (text only, no vectors) and kept in sync by {@link KbVectorIndex}, after commit.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KbTextIndex {
+
+    private final KbEmbeddingRepository embRepo;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Bm25Index bm25 = new Bm25Index();
+    private volatile boolean loaded;
+
+    @Value("${rag.rag.hybrid.enabled:true}")
+    private boolean enabled;
+
+    // same throttle as KbVectorIndex: a failed load is retried by searches, at most once per interval
+    @Value("${rag.rag.index-load-retry:30s}")
+    private Duration loadRetry;
+
+    private long nextLoadAttempt = System.nanoTime();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled) load();
+    }
+
+    /** Lazy retry of the startup load, so a DB outage at boot does not turn BM25 off until restart. */
+    private void ensureLoaded() {
+        if (loaded || !enabled) return;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (loaded || now - nextLoadAttempt < 0) return;
+            nextLoadAttempt = now + loadRetry.toNanos();
+            load();
+        }
+    }
+
+    public void load() {
+        try {
+            List<KbEmbeddingRepository.ChunkTextView> rows = embRepo.findChunkTexts();
+            lock.writeLock().lock();
+            try {
+                bm25.clear();
+                for (KbEmbeddingRepository.ChunkTextView r : rows) bm25.add(toChunk(r));
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("KB text index loaded: {} chunks, {} terms", bm25.size(), bm25.termCount());
+        } catch (Exception ex) {
+            log.warn("KB text index not loaded: {}", ex.toString());
+        }
+    }
+
+    /** Replaces every chunk of an article; the caller runs it after commit. */
+    public void replaceArticle(long articleId, List<KbChunk> cs) {
+        if (!loaded) return;
+        lock.writeLock().lock();
+        try {
+            bm25.removeArticle(articleId);
+            cs.forEach(bm25::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void upsert(List<KbChunk> cs) {
+        if (!loaded) return;
+        lock.writeLock().lock();
+        try {
+            cs.forEach(bm25::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<KbHit> search(String query, int topK) {
+        ensureLoaded();
+        if (!loaded) return List.of();
+        lock.readLock().lock();
+        try {
+            return bm25.search(query, Math.max(1, topK));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private static KbChunk toChunk(KbEmbeddingRepository.ChunkTextView r) {
+        return new KbChunk(
+                r.getId(),
+                r.getArticleId() == null ? -1L : r.getArticleId(),
+                r.getChunkIndex() == null ? 0 : r.getChunkIndex(),
+                r.getChunkText(),
+                r.getTokenCount() == null ? TokenEstimator.estimate(r.getChunkText()) : r.getTokenCount());
+    }
+}
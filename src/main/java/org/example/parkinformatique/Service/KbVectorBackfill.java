@@ -0,0 +1,90 @@
+package org.example.parkinformatique.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.parkinformatique.Service.rag.VectorMath;
+import org.example.parkinformatique.entities.KbEmbedding;
+import org.example.parkinformatique.repositories.KbEmbeddingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * One-off conversions at startup, each a no-op once done:
+ * kb_embedding.embedding_json (JSONB) to embedding_bin (bytea), see db/003_kb_embedding_bytea.sql,
+ * then, with search-mode=pgvector, the vector column from embedding_bin for rows that have
+ * none (db/001 only copies embedding_json, which the first step clears).
+ * Runs before {@link KbVectorIndex} loads.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KbVectorBackfill {
+
+    private static final int BATCH = 500;
+
+    private final KbEmbeddingRepository embRepo;
+    private final TransactionTemplate tx;
+
+    @Value("${rag.rag.search-mode:exact}")
+    private String searchMode;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onReady() {
+        convertJson();
+        if ("pgvector".equalsIgnoreCase(searchMode)) fillPgVector();
+    }
+
+    private void convertJson() {
+        try {
+            List<Long> ids = embRepo.findIdsWithJsonOnly();
+            if (ids.isEmpty()) return;
+            log.info("Converting {} kb_embedding rows from JSONB to bytea", ids.size());
+            for (int from = 0; from < ids.size(); from += BATCH) {
+                List<Long> page = ids.subList(from, Math.min(ids.size(), from + BATCH));
+                tx.executeWithoutResult(s -> {
+                    for (KbEmbedding e : embRepo.findAllById(page)) {
+                        e.setVector(VectorMath.fromJson(e.getEmbeddingJson()));
+                        e.setEmbeddingJson(null);
+                    }
+                });
+            }
+            log.info("kb_embedding conversion done");
+        } catch (Exception ex) {
+            log.warn("kb_embedding conversion not done (db/003_kb_embedding_bytea.sql applied?): {}", ex.toString());
+        }
+    }
+
+    /** Rows of another dimension than the column are left out (and keep being skipped by findNearest). */
+    private void fillPgVector() {
+        try {
+            List<Long> ids = embRepo.findIdsMissingPgVector();
+            if (ids.isEmpty()) return;
+            Integer dim = embRepo.findPgVectorDimension();
+            log.info("Filling the pgvector column of {} kb_embedding rows from embedding_bin", ids.size());
+            int filled = 0;
+            for (int from = 0; from < ids.size(); from += BATCH) {
+                List<Long> page = ids.subList(from, Math.min(ids.size(), from + BATCH));
+                filled += tx.execute(s -> {
+                    int n = 0;
+                    for (KbEmbedding e : embRepo.findAllById(page)) {
+                        float[] v = e.getVector();
+                        if (v == null || (dim != null && dim > 0 && v.length != dim)) continue;
+                        n += embRepo.updatePgVector(e.getId(), VectorMath.toPgVector(v));
+                    }
+                    return n;
+                });
+            }
+            log.info("pgvector column filled: {} of {} rows", filled, ids.size());
+        } catch (Exception ex) {
+            log.warn("pgvector column not filled (db/001_kb_embedding_pgvector.sql applied?): {}", ex.toString());
+        }
+    }
+}
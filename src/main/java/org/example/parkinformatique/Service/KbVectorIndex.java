@@ -0,0 +1,670 @@
+package org.example.parkinformatique.Service;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.parkinformatique.Service.rag.HnswIndex;
+import org.example.parkinformatique.Service.rag.KbChunk;
+import org.example.parkinformatique.Service.rag.TokenEstimator;
+import org.example.parkinformatique.Service.rag.KbChangedEvent;
+import org.example.parkinformatique.Service.rag.KbHit;
+import org.example.parkinformatique.Service.rag.Quantizer;
+import org.example.parkinformatique.Service.rag.RecallReport;
+import org.example.parkinformatique.Service.rag.TopK;
+import org.example.parkinformatique.Service.rag.VectorMath;
+import org.example.parkinformatique.entities.KbEmbedding;
+import org.example.parkinformatique.repositories.KbEmbeddingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resident copy of kb_embedding: all vectors in one flat float[] (row i = [i*dim, (i+1)*dim)),
+ * built once at startup and kept in sync by {@link ChatbotIndexerService}.
+ * Rows are normalized on insert, so cosine is a plain dot product ({@link VectorMath#dot}, SIMD
+ * when available). Retrieval never touches the database nor the JSON mapper.
+ * With {@code rag.rag.search-mode=hnsw} an HNSW graph is maintained next to the flat
+ * array and answers the queries; the flat array stays the source of truth.
+ * With {@code rag.rag.quantization=int8|binary} (exact mode only) only the codes are resident
+ * by default (4x / 32x smaller than float32) and their scores are final
+ * ({@code rag.rag.quantization-rerank=none}). Otherwise the scan ranks
+ * {@code topK * rerank-factor} candidates on the codes, then re-ranks them on float16 rows
+ * kept next to the codes ({@code float16}, +2 bytes per dim), on float32 rows
+ * ({@code float32}, the RAM of the unquantized index and more) or on vectors read back by
+ * primary key ({@code db}, one DB round trip per query).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KbVectorIndex {
+
+    private final KbEmbeddingRepository embRepo;
+    private final ApplicationEventPublisher events;
+    private final KbTextIndex textIndex;
+
+    // recall report bounds (the report may build a whole graph: one at a time, ROLE_ADMIN only)
+    static final int MAX_RECALL_SAMPLES = 1000;
+    static final int MAX_RECALL_K = 100;
+    static final int MAX_RECALL_EF = 1000;
+    static final int MAX_RECALL_EF_VALUES = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Semaphore recallRunning = new Semaphore(1);
+
+    private int dim;
+    private int size;
+    private float[] vectors = new float[0];  // unit-length rows
+    private byte[] codes = new byte[0];     // int8 rows
+    private float[] scales = new float[0];  // int8 per-row scale
+    private long[] bits = new long[0];      // sign-bit rows
+    private short[] halves = new short[0];  // float16 rows, re-rank source (quantization-rerank=float16)
+    private KbChunk[] chunks = new KbChunk[0];
+    private final Map<Long, Integer> slotById = new HashMap<>();
+
+    // package-private setters: the JMH benchmarks configure the index without Spring
+    @Value("${rag.rag.search-mode:exact}")
+    @Setter(AccessLevel.PACKAGE)
+    private String searchMode;
+
+    @Value("${rag.rag.hnsw.m:16}")
+    @Setter(AccessLevel.PACKAGE)
+    private int hnswM;
+
+    @Value("${rag.rag.hnsw.ef-construction:200}")
+    @Setter(AccessLevel.PACKAGE)
+    private int hnswEfConstruction;
+
+    @Value("${rag.rag.hnsw.ef-search:64}")
+    @Setter(AccessLevel.PACKAGE)
+    private int hnswEfSearch;
+
+    @Value("${rag.rag.quantization:none}")
+    @Setter(AccessLevel.PACKAGE)
+    private String quantization;
+
+    @Value("${rag.rag.quantization-rerank-factor:8}")
+    @Setter(AccessLevel.PACKAGE)
+    private int rerankFactor;
+
+    // re-rank of quantized candidates: none (codes only, quantized scores as is), float16
+    // (resident half rows), float32 / memory (resident float rows) or db (findAllById per query)
+    @Value("${rag.rag.quantization-rerank:none}")
+    @Setter(AccessLevel.PACKAGE)
+    private String rerankSource;
+
+    // exact / quantized scans split across the common ForkJoinPool from this many rows (0 = never)
+    @Value("${rag.rag.parallel-scan-min-rows:50000}")
+    @Setter(AccessLevel.PACKAGE)
+    private int parallelMinRows;
+
+    // a failed load (DB down at startup) is retried by searches, at most once per interval
+    @Value("${rag.rag.index-load-retry:30s}")
+    private Duration loadRetry;
+
+    private HnswIndex hnsw;
+    private int hnswEpoch;              // bumped whenever the graph is dropped
+    private Set<Long> hnswJournal;      // ids written while a rebuild runs off-lock, null otherwise
+    @Setter(AccessLevel.PACKAGE)
+    private volatile boolean loaded;
+    private long nextLoadAttempt = System.nanoTime();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if ("pgvector".equalsIgnoreCase(searchMode)) {
+            log.info("KB vector index not preloaded: search-mode=pgvector ranks in PostgreSQL");
+            return;
+        }
+        load();
+    }
+
+    /** Lazy retry of the startup load, so a DB outage at boot does not leave retrieval empty until restart. */
+    private void ensureLoaded() {
+        if (loaded || "pgvector".equalsIgnoreCase(searchMode)) return;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (loaded || now - nextLoadAttempt < 0) return;
+            nextLoadAttempt = now + loadRetry.toNanos();
+            load();
+        }
+    }
+
+    /** Reads only KbEmbedding columns (the article is an id proxy), so no surrounding transaction is needed. */
+    public void load() {
+        try {
+            List<KbEmbedding> rows = embRepo.findAll();
+            List<KbChunk> cs = new ArrayList<>(rows.size());
+            List<float[]> vs = new ArrayList<>(rows.size());
+            for (KbEmbedding e : rows) {
+                float[] v = e.getVector();
+                if (v == null) continue;
+                cs.add(toChunk(e));
+                vs.add(v);
+            }
+            rebuild(cs, vs);
+            loaded = true;
+            events.publishEvent(new KbChangedEvent(null, true));
+            log.info("KB vector index loaded: {} chunks, dim={}, simd={}", size(), dimension(), VectorMath.simd());
+        } catch (Exception ex) {
+            log.warn("KB vector index not loaded: {}", ex.toString());
+        }
+    }
+
+    public static KbChunk toChunk(KbEmbedding e) {
+        return new KbChunk(
+                e.getId(),
+                e.getArticle() == null ? -1L : e.getArticle().getId(),
+                e.getChunkIndex() == null ? 0 : e.getChunkIndex(),
+                e.getChunkText(),
+                e.getTokenCount() == null ? TokenEstimator.estimate(e.getChunkText()) : e.getTokenCount());
+    }
+
+    /* ------------ WRITE ------------ */
+
+    public void rebuild(List<KbChunk> cs, List<float[]> vs) {
+        lock.writeLock().lock();
+        try {
+            size = 0;
+            dim = 0;
+            vectors = new float[0];
+            codes = new byte[0];
+            scales = new float[0];
+            bits = new long[0];
+            halves = new short[0];
+            chunks = new KbChunk[0];
+            slotById.clear();
+            hnsw = null;
+            hnswEpoch++;
+            for (int i = 0; i < cs.size(); i++) add(cs.get(i), vs.get(i));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces every chunk of an article. Inside a transaction the change is applied
+     * after commit, so a rolled back reindex never leaks into the index.
+     * The {@link KbTextIndex} follows, and a {@link KbChangedEvent} is published, in every search mode.
+     */
+    public void replaceArticle(long articleId, List<KbChunk> cs, List<float[]> vs) {
+        runAfterCommit(() -> {
+            boolean added = !cs.isEmpty(); // unknown while not loaded: assume a new article
+            if (loaded) { // otherwise a later load() reads everything from the table
+                boolean compact;
+                lock.writeLock().lock();
+                try {
+                    added &= removeArticleLocked(articleId) == 0;
+                    for (int i = 0; i < cs.size(); i++) add(cs.get(i), vs.get(i));
+                    compact = hnsw != null && hnsw.deletedRatio() > 0.5;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                if (compact) rebuildHnsw();
+            }
+            textIndex.replaceArticle(articleId, cs);
+            events.publishEvent(new KbChangedEvent(Set.of(articleId), added));
+        });
+    }
+
+    public void removeArticle(long articleId) {
+        replaceArticle(articleId, List.of(), List.of());
+    }
+
+    /** Adds or replaces individual chunks (after commit, like {@link #replaceArticle}). */
+    public void upsert(List<KbChunk> cs, List<float[]> vs) {
+        runAfterCommit(() -> {
+            boolean added = true;
+            if (loaded) {
+                lock.writeLock().lock();
+                try {
+                    added = cs.stream().anyMatch(c -> !slotById.containsKey(c.id()));
+                    for (int i = 0; i < cs.size(); i++) add(cs.get(i), vs.get(i));
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            textIndex.upsert(cs);
+            Set<Long> articleIds = new HashSet<>();
+            for (KbChunk c : cs) articleIds.add(c.articleId());
+            events.publishEvent(new KbChangedEvent(articleIds, added));
+        });
+    }
+
+    private void runAfterCommit(Runnable r) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    r.run();
+                }
+            });
+        } else {
+            r.run();
+        }
+    }
+
+    private void add(KbChunk c, float[] v) {
+        if (size == 0 && v.length != dim) {
+            dim = v.length;
+            vectors = new float[0];
+            codes = new byte[0];
+            bits = new long[0];
+            halves = new short[0];
+            chunks = new KbChunk[0];
+            hnsw = null;
+            hnswEpoch++;
+        }
+        if (v.length != dim) {
+            log.warn("Skipping chunk {}: dim {} != index dim {}", c.id(), v.length, dim);
+            return;
+        }
+        Integer existing = slotById.get(c.id());
+        if (existing != null) removeSlot(existing);
+        ensureCapacity(size + 1);
+        float[] u = VectorMath.normalize(v);
+        switch (quant()) {
+            case INT8 -> scales[size] = Quantizer.quantizeInt8(u, codes, size * dim);
+            case BINARY -> Quantizer.signBits(u, bits, size * Quantizer.words(dim));
+            default -> { }
+        }
+        if (floatRows()) System.arraycopy(u, 0, vectors, size * dim, dim);
+        if (halfRows()) Quantizer.toHalves(u, halves, size * dim);
+        chunks[size] = c;
+        slotById.put(c.id(), size);
+        size++;
+        if (hnswEnabled()) {
+            if (hnsw == null) hnsw = new HnswIndex(dim, hnswM, hnswEfConstruction);
+            hnsw.add(c.id(), u);
+            if (hnswJournal != null) hnswJournal.add(c.id());
+        }
+    }
+
+    /** @return the number of chunks removed */
+    private int removeArticleLocked(long articleId) {
+        int removed = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            if (chunks[i].articleId() == articleId) {
+                removeSlot(i);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /** Swap-with-last removal keeps the flat array dense. */
+    private void removeSlot(int slot) {
+        int last = size - 1;
+        slotById.remove(chunks[slot].id());
+        if (hnsw != null) hnsw.remove(chunks[slot].id());
+        if (hnswJournal != null) hnswJournal.add(chunks[slot].id());
+        if (slot != last) {
+            switch (quant()) {
+                case INT8 -> {
+                    System.arraycopy(codes, last * dim, codes, slot * dim, dim);
+                    scales[slot] = scales[last];
+                }
+                case BINARY -> {
+                    int w = Quantizer.words(dim);
+                    System.arraycopy(bits, last * w, bits, slot * w, w);
+                }
+                default -> { }
+            }
+            if (floatRows()) System.arraycopy(vectors, last * dim, vectors, slot * dim, dim);
+            if (halfRows()) System.arraycopy(halves, last * dim, halves, slot * dim, dim);
+            chunks[slot] = chunks[last];
+            slotById.put(chunks[slot].id(), slot);
+        }
+        chunks[last] = null;
+        size--;
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= chunks.length) return;
+        int cap = Math.max(16, Math.max(rows, chunks.length * 2));
+        switch (quant()) {
+            case INT8 -> {
+                codes = Arrays.copyOf(codes, cap * dim);
+                scales = Arrays.copyOf(scales, cap);
+            }
+            case BINARY -> bits = Arrays.copyOf(bits, cap * Quantizer.words(dim));
+            default -> { }
+        }
+        if (floatRows()) vectors = Arrays.copyOf(vectors, cap * dim);
+        if (halfRows()) halves = Arrays.copyOf(halves, cap * dim);
+        chunks = Arrays.copyOf(chunks, cap);
+    }
+
+    /**
+     * Compacts the graph once deletes dominate it, without blocking queries: rows are copied
+     * under the lock, the new graph is built from the copy, and the ids written meanwhile
+     * (journal) are replayed on it just before the swap.
+     */
+    private void rebuildHnsw() {
+        Snapshot snap;
+        int epoch;
+        lock.writeLock().lock();
+        try {
+            if (hnsw == null || hnswJournal != null) return; // gone, or a rebuild is already running
+            snap = snapshot();
+            epoch = hnswEpoch;
+            hnswJournal = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        HnswIndex fresh = null;
+        try {
+            fresh = buildHnsw(snap);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (fresh != null && hnsw != null && hnswEpoch == epoch) {
+                    float[] row = new float[dim];
+                    for (long id : hnswJournal) {
+                        Integer slot = slotById.get(id);
+                        if (slot == null) {
+                            fresh.remove(id);
+                        } else {
+                            System.arraycopy(vectors, slot * dim, row, 0, dim);
+                            fresh.add(id, row);
+                        }
+                    }
+                    hnsw = fresh;
+                }
+                hnswJournal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /** Copy of the float rows and their ids. Caller holds the lock. */
+    private Snapshot snapshot() {
+        long[] ids = new long[size];
+        for (int i = 0; i < size; i++) ids[i] = chunks[i].id();
+        return new Snapshot(Arrays.copyOf(vectors, size * dim), ids, dim);
+    }
+
+    private record Snapshot(float[] rows, long[] ids, int dim) {
+        int size() {
+            return ids.length;
+        }
+    }
+
+    private HnswIndex buildHnsw(Snapshot snap) {
+        int d = snap.dim();
+        HnswIndex h = new HnswIndex(d, hnswM, hnswEfConstruction);
+        float[] row = new float[d];
+        for (int i = 0; i < snap.size(); i++) {
+            System.arraycopy(snap.rows(), i * d, row, 0, d);
+            h.add(snap.ids()[i], row);
+        }
+        return h;
+    }
+
+    private boolean hnswEnabled() {
+        return "hnsw".equalsIgnoreCase(searchMode);
+    }
+
+    /** Float rows: the unquantized index, or the float32 re-rank source. */
+    private boolean floatRows() {
+        return quant() == Quantizer.Mode.NONE
+                || "float32".equalsIgnoreCase(rerankSource) || "memory".equalsIgnoreCase(rerankSource);
+    }
+
+    /** float16 rows next to the codes, for the re-rank only. */
+    private boolean halfRows() {
+        return quant() != Quantizer.Mode.NONE && "float16".equalsIgnoreCase(rerankSource);
+    }
+
+    /** HNSW needs full-precision rows, so quantization only applies to the exact scan. */
+    private Quantizer.Mode quant() {
+        return hnswEnabled() ? Quantizer.Mode.NONE : Quantizer.mode(quantization);
+    }
+
+    /* ------------ READ ------------ */
+
+    public List<KbHit> search(float[] q, int topK) {
+        ensureLoaded();
+        List<KbHit> candidates;
+        lock.readLock().lock();
+        try {
+            if (hnsw != null && hnswEnabled()) return searchHnsw(hnsw, q, topK, hnswEfSearch);
+            if (quant() == Quantizer.Mode.NONE) return searchExact(q, topK);
+            candidates = searchQuantized(q, Math.max(1, topK) * Math.max(1, rerankFactor));
+            if (floatRows() || halfRows()) return rerankResident(q, candidates, Math.max(1, topK));
+            if (!"db".equalsIgnoreCase(rerankSource)) return candidates.subList(0, Math.min(topK, candidates.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        // rerank=db, outside the lock: reads topK * factor rows from the database
+        return rerank(q, candidates, Math.max(1, topK));
+    }
+
+    private List<KbHit> searchHnsw(HnswIndex h, float[] q, int topK, int efSearch) {
+        List<KbHit> out = new ArrayList<>();
+        for (Map.Entry<Long, Float> e : h.search(q, Math.max(1, topK), efSearch)) {
+            Integer slot = slotById.get(e.getKey());
+            if (slot != null) out.add(new KbHit(chunks[slot], e.getValue()));
+        }
+        return out;
+    }
+
+    /** Caller holds the read lock. */
+    private List<KbHit> searchExact(float[] q, int topK) {
+        if (size == 0 || q.length != dim) return List.of();
+        float[] qu = VectorMath.normalize(q);
+        float[] rows = vectors;
+        int d = dim;
+        return hits(select(Math.max(1, topK), i -> VectorMath.dot(qu, rows, i * d, d)));
+    }
+
+    /** First pass on the codes. Caller holds the read lock. */
+    private List<KbHit> searchQuantized(float[] q, int candidates) {
+        if (size == 0 || q.length != dim) return List.of();
+        Quantizer.Mode mode = quant();
+        float[] qu = VectorMath.normalize(q);
+        int words = Quantizer.words(dim);
+        long[] qBits = new long[words];
+        if (mode == Quantizer.Mode.BINARY) Quantizer.signBits(qu, qBits, 0);
+
+        byte[] c = codes;
+        float[] sc = scales;
+        long[] b = bits;
+        int d = dim;
+        TopK.RowScorer scorer = mode == Quantizer.Mode.INT8
+                ? i -> sc[i] * Quantizer.dotInt8(qu, c, i * d, d)
+                : i -> 1f - 2f * Quantizer.hamming(qBits, b, i * words, words) / d;
+        return hits(select(candidates, scorer));
+    }
+
+    /** Sequential scan, or a fork/join scan once the index is large enough to pay for it. */
+    private TopK select(int k, TopK.RowScorer scorer) {
+        boolean parallel = parallelMinRows > 0 && size >= parallelMinRows
+                && ForkJoinPool.getCommonPoolParallelism() > 1;
+        return parallel
+                ? TopK.selectParallel(size, k, scorer, ForkJoinPool.commonPool())
+                : TopK.select(size, k, scorer);
+    }
+
+    private List<KbHit> hits(TopK top) {
+        int[] slots = new int[top.size()];
+        float[] scores = new float[top.size()];
+        int n = top.drainDescending(slots, scores);
+        List<KbHit> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(new KbHit(chunks[slots[i]], scores[i]));
+        return out;
+    }
+
+    /** Cosine on the resident float32 or float16 rows of the candidates. Caller holds the read lock. */
+    private List<KbHit> rerankResident(float[] q, List<KbHit> candidates, int topK) {
+        float[] qu = VectorMath.normalize(q);
+        boolean half = halfRows();
+        List<KbHit> out = new ArrayList<>(candidates.size());
+        for (KbHit h : candidates) {
+            Integer slot = slotById.get(h.chunk().id());
+            if (slot == null) continue;
+            float s = half ? Quantizer.dotHalf(qu, halves, slot * dim, dim) : VectorMath.dot(qu, vectors, slot * dim, dim);
+            out.add(new KbHit(h.chunk(), s));
+        }
+        out.sort((a, b) -> Float.compare(b.score(), a.score()));
+        return out.subList(0, Math.min(topK, out.size()));
+    }
+
+    /** Exact cosine on the candidates' full vectors; keeps the approximate order if the DB is unavailable. */
+    private List<KbHit> rerank(float[] q, List<KbHit> candidates, int topK) {
+        if (candidates.isEmpty()) return candidates;
+        Map<Long, KbChunk> byId = new HashMap<>();
+        candidates.forEach(h -> byId.put(h.chunk().id(), h.chunk()));
+        float[] qu = VectorMath.normalize(q);
+        List<KbHit> out = new ArrayList<>(candidates.size());
+        try {
+            for (KbEmbedding e : embRepo.findAllById(byId.keySet())) {
+                float[] v = e.getVector();
+                if (v == null || v.length != q.length) continue;
+                float s = VectorMath.dot(qu, v, 0, v.length) / (VectorMath.norm(v) + 1e-9f);
+                out.add(new KbHit(byId.get(e.getId()), s));
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Exact re-rank unavailable, using quantized scores: {}", ex.getMessage());
+            out.clear();
+        }
+        if (out.isEmpty()) return candidates.subList(0, Math.min(topK, candidates.size()));
+        out.sort((a, b) -> Float.compare(b.score(), a.score()));
+        return out.subList(0, Math.min(topK, out.size()));
+    }
+
+    /**
+     * Measures HNSW recall@k against the exact scan on {@code samples} queries
+     * (stored vectors plus gaussian noise), for each efSearch value.
+     * Uses the live graph, or builds a temporary one when search-mode is exact.
+     * Works on a copy of the rows: the lock is only held for the copy and for each live-graph
+     * query. Inputs are capped (samples, k, ef values) and one report runs at a time
+     * (409 otherwise): its cost grows with the corpus, whatever the caps.
+     */
+    public RecallReport recallReport(int samples, int k, List<Integer> efSearchValues) {
+        if (!recallRunning.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Un rapport de recall est déjà en cours.");
+        }
+        try {
+            return computeRecallReport(samples, k, efSearchValues);
+        } finally {
+            recallRunning.release();
+        }
+    }
+
+    private RecallReport computeRecallReport(int samples, int k, List<Integer> efSearchValues) {
+        samples = Math.max(1, Math.min(samples, MAX_RECALL_SAMPLES));
+        k = Math.max(1, Math.min(k, MAX_RECALL_K));
+        List<Integer> efs = efSearchValues.stream()
+                .limit(MAX_RECALL_EF_VALUES)
+                .map(ef -> Math.max(1, Math.min(ef, MAX_RECALL_EF)))
+                .toList();
+
+        Snapshot snap;
+        HnswIndex live;
+        lock.readLock().lock();
+        try {
+            if (size == 0) return new RecallReport(0, 0, k, hnswM, hnswEfConstruction, List.of());
+            if (quant() != Quantizer.Mode.NONE) {
+                throw new IllegalStateException("Recall report needs full-precision vectors (rag.rag.quantization=none)");
+            }
+            snap = snapshot();
+            live = hnsw;
+        } finally {
+            lock.readLock().unlock();
+        }
+        HnswIndex h = live != null ? live : buildHnsw(snap);
+        int n = snap.size();
+        int d = snap.dim();
+        float[] rows = snap.rows();
+
+        Random rnd = new Random(7);
+        float[][] queries = new float[samples][d];
+        float scale = 1f / (float) Math.sqrt(d); // rows are unit-length
+        for (float[] qv : queries) {
+            int slot = rnd.nextInt(n);
+            for (int i = 0; i < d; i++) {
+                qv[i] = rows[slot * d + i] + (float) rnd.nextGaussian() * 0.3f * scale;
+            }
+        }
+
+        List<Set<Long>> truth = new ArrayList<>(samples);
+        long exactNanos = 0;
+        for (float[] qv : queries) {
+            long t0 = System.nanoTime();
+            float[] qu = VectorMath.normalize(qv);
+            TopK top = TopK.select(n, k, i -> VectorMath.dot(qu, rows, i * d, d));
+            int[] slots = new int[top.size()];
+            int found = top.drainDescending(slots, new float[slots.length]);
+            exactNanos += System.nanoTime() - t0;
+            Set<Long> ids = new HashSet<>();
+            for (int i = 0; i < found; i++) ids.add(snap.ids()[slots[i]]);
+            truth.add(ids);
+        }
+
+        List<RecallReport.Row> report = new ArrayList<>();
+        for (int ef : efs) {
+            long nanos = 0;
+            int found = 0, expected = 0;
+            for (int s = 0; s < samples; s++) {
+                long t0 = System.nanoTime();
+                List<Map.Entry<Long, Float>> approx = searchGraph(h, h == live, queries[s], k, ef);
+                nanos += System.nanoTime() - t0;
+                for (Map.Entry<Long, Float> hit : approx) if (truth.get(s).contains(hit.getKey())) found++;
+                expected += truth.get(s).size();
+            }
+            report.add(new RecallReport.Row(ef,
+                    expected == 0 ? 1.0 : (double) found / expected,
+                    exactNanos / 1000.0 / samples,
+                    nanos / 1000.0 / samples));
+        }
+        return new RecallReport(n, samples, k, hnswM, hnswEfConstruction, report);
+    }
+
+    /** The live graph is written under the write lock, a temporary one belongs to the caller. */
+    private List<Map.Entry<Long, Float>> searchGraph(HnswIndex h, boolean shared, float[] q, int k, int ef) {
+        if (!shared) return h.search(q, k, ef);
+        lock.readLock().lock();
+        try {
+            return h.search(q, k, ef);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int dimension() {
+        lock.readLock().lock();
+        try {
+            return dim;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
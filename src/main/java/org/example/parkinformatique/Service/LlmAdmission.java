@@ -0,0 +1,175 @@
+package org.example.parkinformatique.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+
+/**
+ * Admission control in front of Ollama generations: at most max-concurrent run, up to
+ * max-queue wait (FIFO) and get their position as it changes, the rest is refused at once
+ * with a 503 instead of piling up inside Ollama until the 5 minute timeout.
+ */
+@Component
+@RequiredArgsConstructor
+public class LlmAdmission {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${rag.admission.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${rag.admission.max-queue:20}")
+    private int maxQueue;
+
+    @Value("${rag.admission.queue-timeout:2m}")
+    private Duration queueTimeout;
+
+    // position updates for one waiter may race with its admission; the completion must not be lost
+    private static final Sinks.EmitFailureHandler RETRY_CONCURRENT =
+            Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1));
+
+    private final Deque<Waiter> queue = new ArrayDeque<>();
+    private int running;
+
+    private Timer waitTimer;
+    private Counter rejected;
+
+    /** A running generation's permit; released once, whatever ends it. */
+    private final class Slot {
+        private final AtomicBoolean held = new AtomicBoolean();
+
+        void release() {
+            if (held.compareAndSet(true, false)) signal(releaseLocked());
+        }
+    }
+
+    private record Waiter(Slot slot, Sinks.Many<Integer> positions, long queuedAt) {}
+
+    @PostConstruct
+    void initMetrics() {
+        Gauge.builder("rag.admission.queue.depth", this, LlmAdmission::queueDepth).register(meterRegistry);
+        Gauge.builder("rag.admission.running", this, LlmAdmission::runningCount).register(meterRegistry);
+        waitTimer = Timer.builder("rag.admission.wait")
+                .description("Time spent queued before a generation starts")
+                .register(meterRegistry);
+        rejected = Counter.builder("rag.admission.rejected").register(meterRegistry);
+    }
+
+    public Mono<String> admit(Mono<String> work) {
+        return admit(work.flux(), null).next();
+    }
+
+    /**
+     * Subscribes to {@code work} once a slot is free. While queued, {@code queued} turns each
+     * position change (1 = next) into an element of the stream; null hides them.
+     * Fails with 503 if the queue is full or the wait exceeds queue-timeout.
+     */
+    public <T> Flux<T> admit(Flux<T> work, IntFunction<T> queued) {
+        return Flux.defer(() -> {
+            Slot slot = new Slot();
+            Flux<T> run = work.doFinally(s -> slot.release());
+            Waiter w;
+            synchronized (this) {
+                if (running < maxConcurrent && queue.isEmpty()) {
+                    running++;
+                    slot.held.set(true);
+                    waitTimer.record(Duration.ZERO);
+                    return run;
+                }
+                if (queue.size() >= maxQueue) {
+                    rejected.increment();
+                    return Flux.error(overloaded("Assistant saturé, réessayez dans quelques instants."));
+                }
+                w = new Waiter(slot, Sinks.many().unicast().onBackpressureBuffer(), System.nanoTime());
+                queue.addLast(w);
+                w.positions().tryEmitNext(queue.size());
+            }
+            // one deadline for the whole wait: timeout(Duration) would restart on every position update,
+            // and the first position is already buffered so each item re-arms with what is left
+            long deadline = w.queuedAt() + queueTimeout.toNanos();
+            Flux<Integer> positions = w.positions().asFlux()
+                    .timeout(Mono.delay(queueTimeout),
+                            p -> Mono.delay(Duration.ofNanos(Math.max(0, deadline - System.nanoTime()))))
+                    .onErrorMap(TimeoutException.class, e -> {
+                        rejected.increment();
+                        return overloaded("Temps d'attente dépassé, réessayez dans quelques instants.");
+                    });
+            Flux<T> waiting = queued == null ? positions.thenMany(Flux.<T>empty()) : positions.map(queued::apply);
+            return waiting
+                    .concatWith(run)
+                    .doFinally(s -> {
+                        signal(leave(w));
+                        slot.release(); // admitted but cancelled before the work started
+                    });
+        });
+    }
+
+    public synchronized int queueDepth() {
+        return queue.size();
+    }
+
+    public synchronized int runningCount() {
+        return running;
+    }
+
+    public static boolean isOverloaded(Throwable e) {
+        return e instanceof ResponseStatusException r && r.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE;
+    }
+
+    private static ResponseStatusException overloaded(String reason) {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, reason);
+    }
+
+    /* Sink signals are collected under the lock and emitted after it: they reach the HTTP response. */
+
+    private synchronized List<Runnable> releaseLocked() {
+        running--;
+        List<Runnable> signals = new ArrayList<>();
+        while (running < maxConcurrent && !queue.isEmpty()) {
+            Waiter next = queue.pollFirst();
+            running++;
+            next.slot().held.set(true);
+            waitTimer.record(Duration.ofNanos(System.nanoTime() - next.queuedAt()));
+            signals.add(() -> next.positions().emitComplete(RETRY_CONCURRENT));
+        }
+        if (!signals.isEmpty()) signals.addAll(positionUpdates());
+        return signals;
+    }
+
+    private synchronized List<Runnable> leave(Waiter w) {
+        return queue.remove(w) ? positionUpdates() : List.of();
+    }
+
+    private List<Runnable> positionUpdates() {
+        List<Runnable> signals = new ArrayList<>(queue.size());
+        int pos = 1;
+        for (Waiter w : queue) {
+            int p = pos++;
+            signals.add(() -> w.positions().tryEmitNext(p));
+        }
+        return signals;
+    }
+
+    private static void signal(List<Runnable> signals) {
+        signals.forEach(Runnable::run);
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.parkinformatique.Service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.parkinformatique.Service.provider.ChatProvider;
+import org.example.parkinformatique.Service.provider.EmbeddingProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the embedding and chat models on their backend (Ollama) once the application is
+ * ready, then reloads them every keep_alive / 2 so they are not evicted between questions.
+ * Health "models" (readiness group): OUT_OF_SERVICE until both models answered once, so
+ * a load balancer keeps chat traffic away from a node that would pay the cold start.
+ * A failed refresh of a model that already answered keeps it WARM (the error is reported
+ * in the details): it is most likely still resident, and the node stays in rotation.
+ * Until every model is WARM, loads are retried every rag.ollama.warmup.retry.
+ * Loads block (up to rag.ollama.warmup.timeout) on a thread of their own, not on the
+ * shared TaskScheduler, whose single thread also runs every @Scheduled job.
+ */
+@Component("models")
+@RequiredArgsConstructor
+@Slf4j
+public class ModelWarmup implements HealthIndicator {
+
+    private final MeterRegistry meterRegistry;
+    private final EmbeddingProvider embeddings;
+    private final ChatProvider chat;
+
+    @Value("${rag.ollama.keep-alive:1h}")
+    private String keepAlive;
+
+    @Value("${rag.ollama.warmup.enabled:true}")
+    private boolean enabled;
+
+    // first load of a big model from disk can take a while
+    @Value("${rag.ollama.warmup.timeout:5m}")
+    private Duration timeout;
+
+    // retry delay while a model has never been loaded, instead of waiting a whole refresh period
+    @Value("${rag.ollama.warmup.retry:30s}")
+    private Duration retryDelay;
+
+    private enum State { COLD, LOADING, WARM, FAILED }
+
+    private record Status(State state, Instant at, String detail) {}
+
+    private final Map<String, Status> models = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "model-warmup");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private boolean retryScheduled; // guarded by this: one retry chain, whatever the periodic runs
+
+    @PostConstruct
+    void init() {
+        models.put(embeddings.model(), new Status(State.COLD, Instant.now(), null));
+        models.put(chat.model(), new Status(State.COLD, Instant.now(), null));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!enabled) return;
+        Duration period = refreshPeriod();
+        log.info("Model warm-up: {} and {} (keep_alive={}, refresh every {})",
+                embeddings.model(), chat.model(), keepAlive, period);
+        scheduler.scheduleWithFixedDelay(() -> run(this::refresh), 0, period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /** An exception escaping a periodic task would cancel its later runs. */
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.warn("Model warm-up failed: {}", e.toString());
+        }
+    }
+
+    /** Half the keep_alive, within [30s, 30m]; keep_alive &lt; 0 (never unload) still checks every 30m. */
+    Duration refreshPeriod() {
+        Duration ka;
+        try {
+            ka = DurationStyle.detectAndParse(keepAlive);
+        } catch (IllegalArgumentException e) {
+            ka = Duration.ofHours(1);
+        }
+        if (ka.isNegative()) return Duration.ofMinutes(30);
+        Duration half = ka.dividedBy(2);
+        if (half.compareTo(Duration.ofSeconds(30)) < 0) return Duration.ofSeconds(30);
+        return half.compareTo(Duration.ofMinutes(30)) > 0 ? Duration.ofMinutes(30) : half;
+    }
+
+    synchronized void refresh() {
+        load(embeddings.model(), embeddings.warmUp());
+        load(chat.model(), chat.warmUp());
+        boolean pending = models.values().stream().anyMatch(s -> s.state() != State.WARM);
+        if (pending && !retryScheduled) {
+            retryScheduled = true;
+            scheduler.schedule(() -> run(this::retry), retryDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void retry() {
+        retryScheduled = false;
+        refresh();
+    }
+
+    /** Blocking on purpose: runs on the model-warmup thread, one model after the other. */
+    private void load(String model, Mono<Void> warmUp) {
+        Status before = models.get(model);
+        boolean cold = before == null || before.state() != State.WARM;
+        if (cold) models.put(model, new Status(State.LOADING, Instant.now(), null));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            warmUp.block(timeout);
+            if (cold) log.info("Model {} ready in {} ms", model,
+                    Duration.between(models.get(model).at(), Instant.now()).toMillis());
+            models.put(model, new Status(State.WARM, Instant.now(), null));
+        } catch (Exception e) {
+            log.warn("Warm-up of {} failed: {}", model, e.getMessage());
+            // loaded once: a refresh failure alone does not take the node out of rotation
+            State state = cold ? State.FAILED : State.WARM;
+            models.put(model, new Status(state, Instant.now(), String.valueOf(e.getMessage())));
+        } finally {
+            sample.stop(meterRegistry.timer("rag.model.warmup", "model", model));
+        }
+    }
+
+    @Override
+    public Health health() {
+        if (!enabled) return Health.up().withDetail("warmup", "disabled").build();
+        Map<String, Object> details = new LinkedHashMap<>();
+        boolean warm = true;
+        boolean failed = false;
+        for (Map.Entry<String, Status> e : models.entrySet()) {
+            Status s = e.getValue();
+            Map<String, Object> d = new LinkedHashMap<>();
+            d.put("state", s.state());
+            d.put("checkedAt", s.at().toString());
+            if (s.detail() != null) d.put("error", s.detail());
+            details.put(e.getKey(), d);
+            warm &= s.state() == State.WARM;
+            failed |= s.state() == State.FAILED;
+        }
+        Health.Builder b = warm ? Health.up() : failed ? Health.down() : Health.outOfService();
+        return b.withDetails(details).build();
+    }
+}
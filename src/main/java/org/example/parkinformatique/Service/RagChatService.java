@@ -6,23 +6,38 @@
 
 package org.example.parkinformatique.Service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.parkinformatique.Service.provider.ChatProvider;
+import org.example.parkinformatique.Service.provider.ChatRequest;
+import org.example.parkinformatique.Service.rag.ContextPacker;
+import org.example.parkinformatique.Service.rag.KbChangedEvent;
+import org.example.parkinformatique.Service.rag.RankFusion;
+import org.example.parkinformatique.Service.rag.SemanticAnswerCache;
+import org.example.parkinformatique.Service.rag.TokenEstimator;
 import org.example.parkinformatique.entities.KbEmbedding;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientRequestException;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @RequiredArgsConstructor
@@ -31,7 +46,9 @@ public class RagChatService {
 
     private final EmbeddingService embeddingService;
     private final ChatbotService chatbotService;
-    private final ObjectMapper mapper;
+    private final ChatProvider chat;
+    private final MeterRegistry meterRegistry;
+    private final LlmAdmission admission;
 
 
     private static final String SYSTEM_PROMPT = """
@@ -62,142 +79,288 @@ Réponds dans la langue de la question.
 """.formatted(question, (kbContext == null || kbContext.isBlank()) ? "(aucun)" : kbContext);
     }
 
-    @Value("${rag.ollama.base-url:http://localhost:11434}")
-    private String baseUrl;
+    @Value("${rag.rag.topk:3}")
+    private int topK;
 
+    // KB share of the prompt; the packer never exceeds it nor what the window leaves
+    @Value("${rag.rag.max-context-tokens:1024}")
+    private int maxContextTokens;
 
-    @Value("${rag.ollama.chat-model:llama3.2:1b-instruct-q4_K_M}")
-    private String chatModel;
+    // one window for every request (and the warm-up): Ollama reloads the model when num_ctx changes
+    @Value("${rag.ollama.num-ctx:2048}")
+    private int numCtx;
 
-    @Value("${rag.rag.topk:3}")
-    private int topK;
+    @Value("${rag.ollama.num-predict:220}")
+    private int numPredict;
+
+    @Value("${rag.ollama.num-predict-stream:160}")
+    private int numPredictStream;
+
+    @Value("${rag.rag.hybrid.enabled:true}")
+    private boolean hybridEnabled;
+
+    // candidates taken from each ranking (vector, BM25) before fusion
+    @Value("${rag.rag.hybrid.candidates:20}")
+    private int hybridCandidates;
+
+    @Value("${rag.rag.hybrid.rrf-k:60}")
+    private int rrfK;
+
+    // when generation is refused (overload): kb = answer with the KB excerpts, reject = 503
+    @Value("${rag.admission.overflow:kb}")
+    private String overflowMode;
+
+    @Value("${rag.answer-cache.enabled:true}")
+    private boolean answerCacheEnabled;
+
+    @Value("${rag.answer-cache.similarity-threshold:0.95}")
+    private double answerCacheThreshold;
+
+    @Value("${rag.answer-cache.max-size:500}")
+    private int answerCacheMaxSize;
+
+    @Value("${rag.answer-cache.ttl:6h}")
+    private Duration answerCacheTtl;
+
+    // paraphrases of an already answered question are served without calling the model
+    private SemanticAnswerCache answerCache;
 
-    @Value("${rag.rag.max-context-chars:1200}")
-    private int maxContextChars;
+    // single-flight: concurrent identical questions share one generation (key = flightKey)
+    private final Map<String, Flux<ServerSentEvent<String>>> streamsInFlight = new ConcurrentHashMap<>();
+    private final Map<String, Mono<String>> answersInFlight = new ConcurrentHashMap<>();
+    private final AtomicLong kbVersion = new AtomicLong();
+    private Counter coalescedCounter;
 
-    private WebClient client;
+    private static final String CONTEXT_SEPARATOR = "\n---\n";
+    // chat template / role markers around system and user messages
+    private static final int TEMPLATE_TOKENS = 32;
+
+    /**
+     * KB context plus what the answer cache needs (question vector, source articles) and the
+     * estimated prompt size, which sizes num_ctx.
+     */
+    private record KbContext(float[] question, String text, Set<Long> articleIds, long cacheGeneration,
+                             int promptTokens) {}
 
     @PostConstruct
     void init() {
-        this.client = WebClient.builder()
-                .baseUrl(baseUrl)
-                .codecs(c -> c.defaultCodecs().maxInMemorySize(8 * 1024 * 1024))
-                .build();
-        log.info("✅ RAG ready baseUrl={} model={} topK={} maxCtx={}",
-                baseUrl, chatModel, topK, maxContextChars);
+        answerCache = new SemanticAnswerCache(answerCacheMaxSize, answerCacheThreshold, answerCacheTtl);
+        FunctionCounter.builder("rag.answer.cache.requests", answerCache, SemanticAnswerCache::hits)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("rag.answer.cache.requests", answerCache, SemanticAnswerCache::misses)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("rag.answer.cache.evictions", answerCache, SemanticAnswerCache::evictions)
+                .register(meterRegistry);
+        Gauge.builder("rag.answer.cache.size", answerCache, SemanticAnswerCache::size)
+                .register(meterRegistry);
+        coalescedCounter = Counter.builder("rag.chat.coalesced")
+                .description("Chat requests that joined an identical in-flight generation")
+                .register(meterRegistry);
+        log.info("✅ RAG ready model={} topK={} maxCtxTokens={} numCtx={}",
+                chat.model(), topK, maxContextTokens, numCtx);
+    }
+
+    @EventListener
+    public void onKbChanged(KbChangedEvent event) {
+        kbVersion.incrementAndGet();
+        // new content can beat the sources of any cached answer: drop them all
+        answerCache.invalidate(event.added() ? null : event.articleIds());
+    }
+
+    /** Same normalized question, same KB state: the same answer can be shared. */
+    private String flightKey(String question) {
+        return kbVersion.get() + "\u0000" + EmbeddingService.normalize(question);
+    }
+
+    /** Empty if the embedding model is unavailable: the answer is then built on BM25 alone. */
+    private Mono<Optional<float[]>> embedQuestion(String question) {
+        return embeddingService.embedQueryAsync(question)
+                .timeout(Duration.ofSeconds(60))
+                .map(Optional::of)
+                .onErrorResume(e -> {
+                    log.warn("Question embedding unavailable: {}", e.toString());
+                    return Mono.just(Optional.empty());
+                });
     }
 
+    private String cachedAnswer(float[] q) {
+        if (!answerCacheEnabled || q == null) return null;
+        SemanticAnswerCache.Hit hit = answerCache.get(q);
+        if (hit == null) return null;
+        log.debug("Answer cache hit (similarity={})", hit.similarity());
+        return hit.answer();
+    }
+
+    private void cacheAnswer(KbContext kb, String answer) {
+        if (answerCacheEnabled && kb.question() != null) {
+            answerCache.put(kb.question(), answer, kb.articleIds(), kb.cacheGeneration());
+        }
+    }
+
+    /**
+     * Retrieval off the event loop: the in-memory indexes answer in microseconds, but
+     * pgvector and the quantized re-rank go through JDBC.
+     */
+    private Mono<KbContext> buildKbContext(String question, float[] q) {
+        return Mono.fromCallable(() -> kbContext(question, q))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
 
-    private String buildKbContext(String question) {
+    /**
+     * Vector ranking fused with BM25 (reciprocal rank fusion) when hybrid search is on;
+     * BM25 alone still gives a context if the question could not be embedded.
+     * Up to topK whole chunks are packed, best first, into the tokens the window leaves;
+     * a chunk too big for what remains is skipped, the next candidates can take its place.
+     */
+    private KbContext kbContext(String question, float[] q) {
+        long generation = answerCache.generation(); // read before retrieval, see SemanticAnswerCache.put
+        int fixed = fixedPromptTokens(question);
+        int k = Math.max(1, topK);
+        int candidates = Math.max(k, hybridCandidates);
         try {
-            List<Double> q = embeddingService.embed(question);
-            List<KbEmbedding> top = chatbotService.findRelevantChunks(q, Math.max(1, topK));
-            String ctx = top.stream()
-                    .map(KbEmbedding::getChunkText)
-                    .collect(Collectors.joining("\n---\n"));
-
-            if (ctx.length() > maxContextChars) {
-                return ctx.substring(0, maxContextChars);
+            List<KbEmbedding> ranked = q == null ? List.of() : chatbotService.findRelevantChunks(q, candidates);
+            if (hybridEnabled) {
+                List<KbEmbedding> keyword = chatbotService.findKeywordChunks(question, candidates);
+                ranked = RankFusion.rrf(List.of(ranked, keyword), KbEmbedding::getId, rrfK, candidates);
             }
-            return ctx;
+            int budget = Math.min(maxContextTokens, numCtx - Math.max(numPredict, numPredictStream) - fixed);
+            ContextPacker.Packed<KbEmbedding> packed = ContextPacker.pack(ranked, KbEmbedding::getChunkText,
+                    RagChatService::tokens, budget, k, CONTEXT_SEPARATOR);
+            Set<Long> articleIds = new HashSet<>();
+            for (KbEmbedding e : packed.items()) {
+                if (e.getArticle() != null) articleIds.add(e.getArticle().getId());
+            }
+            return new KbContext(q, packed.text(), articleIds, generation, fixed + packed.tokens());
         } catch (Exception e) {
             log.warn("KB context unavailable: {}", e.toString());
-            return "";
+            return new KbContext(null, "", Set.of(), generation, fixed); // not cached
         }
     }
 
+    private static int tokens(KbEmbedding e) {
+        return e.getTokenCount() != null ? e.getTokenCount() : TokenEstimator.estimate(e.getChunkText());
+    }
 
-    public Flux<String> answerStream(String question) {
-        String kb = buildKbContext(question);
+    /** Everything in the prompt but the KB excerpts. */
+    private int fixedPromptTokens(String question) {
+        return TEMPLATE_TOKENS + TokenEstimator.estimate(SYSTEM_PROMPT)
+                + TokenEstimator.estimate(buildUserContent(question, ""));
+    }
 
-        Map<String, Object> body = Map.of(
-                "model", chatModel,
-                "stream", true,
-                "keep_alive", "1h",
-                "options", Map.of(
-                        "num_predict", 160,
-                        "temperature", 0.3,
-                        "num_ctx", 1024
-                ),
+    /**
+     * num_ctx is the same for every request, so Ollama never reloads the model between two
+     * of them; the packing budget (see kbContext) and num_predict adapt to the prompt instead.
+     */
+    private ChatRequest chatRequest(String question, KbContext kb, int maxPredict) {
+        int predict = Math.max(64, Math.min(maxPredict, numCtx - kb.promptTokens()));
+        return new ChatRequest(SYSTEM_PROMPT, buildUserContent(question, kb.text()), numCtx, predict, 0.3);
+    }
 
-                "prompt", """
-<<SYS>>
-%s
-<</SYS>>
 
-%s
-""".formatted(SYSTEM_PROMPT, buildUserContent(question, kb))
-        );
-
-        return client.post()
-                .uri("/api/generate")
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(body)
-                .retrieve()
-                .bodyToFlux(String.class)
-                .timeout(Duration.ofMinutes(5))
-                .map(chunkJson -> {
-                    try {
-                        // Ollama generate stream: {"response":"..","done":false,...}
-                        JsonNode n = mapper.readTree(chunkJson);
-                        if (n.has("response")) {
-                            return n.get("response").asText("");
-                        }
-                        return "";
-                    } catch (Exception ignore) {
-                        return "";
+    /**
+     * embed -> retrieve -> generate as one pipeline; no thread waits on Ollama.
+     * SSE: tokens are unnamed events; while waiting for a generation slot, "queue" events
+     * carry the position. Overload before anything was sent fails with 503.
+     */
+    public Flux<ServerSentEvent<String>> answerStream(String question) {
+        return Flux.defer(() -> {
+            String key = flightKey(question);
+            boolean[] joined = {true};
+            Flux<ServerSentEvent<String>> flight = streamsInFlight.computeIfAbsent(key, k -> {
+                joined[0] = false;
+                AtomicReference<Flux<ServerSentEvent<String>>> self = new AtomicReference<>();
+                // replay(): late joiners get the tokens already emitted, then the live ones;
+                // refCount(1): generation is cancelled once the last listener is gone
+                Flux<ServerSentEvent<String>> shared = answerStreamUncoalesced(question)
+                        .doFinally(s -> streamsInFlight.remove(k, self.get()))
+                        .replay()
+                        .refCount(1);
+                self.set(shared);
+                return shared;
+            });
+            if (joined[0]) coalescedCounter.increment();
+            return flight;
+        });
+    }
+
+    private Flux<ServerSentEvent<String>> answerStreamUncoalesced(String question) {
+        return embedQuestion(question)
+                .flatMapMany(q -> {
+                    String cached = cachedAnswer(q.orElse(null));
+                    if (cached != null) {
+                        // replay word by word so the client renders it like a live stream
+                        return words(cached);
                     }
+                    return buildKbContext(question, q.orElse(null))
+                            .flatMapMany(kb -> admission
+                                    .admit(generateStream(question, kb).map(RagChatService::token),
+                                            pos -> ServerSentEvent.builder(String.valueOf(pos)).event("queue").build())
+                                    .onErrorResume(e -> LlmAdmission.isOverloaded(e) && kbFallback(kb),
+                                            e -> words(kbOnlyAnswer(kb))));
                 })
-                .filter(s -> !s.isEmpty())
-                .onErrorResume(err -> Flux.just("⚠️ Erreur: " + err.getMessage()));
-    }
-
-    public String answer(String question) {
-        String kb = buildKbContext(question);
-
-        var body = Map.of(
-                "model", chatModel,
-                "stream", false,
-                "keep_alive", "1h",
-                "options", Map.of(
-                        "num_predict", 220,
-                        "temperature", 0.3,
-                        "num_ctx", 1024
-                ),
-                "messages", List.of(
-                        Map.of("role", "system", "content", SYSTEM_PROMPT),
-                        Map.of("role", "user", "content", buildUserContent(question, kb))
-                )
-        );
+                .onErrorResume(err -> !LlmAdmission.isOverloaded(err),
+                        err -> Flux.just(token("⚠️ Erreur: " + err.getMessage())));
+    }
 
-        try {
-            String raw = client.post()
-                    .uri("/api/chat")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(body)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block(Duration.ofSeconds(60));
-
-            String text = extractTextFromOllama(raw);
-            return (text != null && !text.isBlank()) ? text : raw;
-
-        } catch (WebClientRequestException e) {
-            throw new IllegalStateException("Ollama unreachable at " + baseUrl + " — run `ollama serve`.", e);
-        }
+    private static ServerSentEvent<String> token(String text) {
+        return ServerSentEvent.builder(text).build();
     }
 
-    private String extractTextFromOllama(String raw) {
-        try {
-            JsonNode root = mapper.readTree(raw);
-            String c = root.path("message").path("content").asText(null); // /api/chat
-            if (c != null && !c.isBlank()) return c;
-            String r = root.path("response").asText(null);                // /api/generate
-            if (r != null && !r.isBlank()) return r;
-            return null;
-        } catch (Exception e) {
-            log.warn("Failed to parse Ollama JSON, returning raw", e);
-            return null;
-        }
+    private static Flux<ServerSentEvent<String>> words(String text) {
+        return Flux.fromArray(text.split("(?<=\\s)")).map(RagChatService::token);
+    }
+
+    private boolean kbFallback(KbContext kb) {
+        return "kb".equalsIgnoreCase(overflowMode) && !kb.text().isBlank();
+    }
+
+    /** Overload answer: the retrieved KB excerpts as they are, no generation. */
+    private static String kbOnlyAnswer(KbContext kb) {
+        return "⚠️ L'assistant est très sollicité. Voici les extraits de la base de connaissances "
+                + "les plus proches de votre question :\n\n" + kb.text();
+    }
+
+    private Flux<String> generateStream(String question, KbContext kb) {
+        StringBuilder streamed = new StringBuilder();
+        return chat.stream(chatRequest(question, kb, numPredictStream))
+                .doOnNext(streamed::append)
+                .doOnComplete(() -> cacheAnswer(kb, streamed.toString())); // not on error or cancel
+    }
+
+    public Mono<String> answer(String question) {
+        return Mono.defer(() -> {
+            String key = flightKey(question);
+            boolean[] joined = {true};
+            Mono<String> flight = answersInFlight.computeIfAbsent(key, k -> {
+                joined[0] = false;
+                AtomicReference<Mono<String>> self = new AtomicReference<>();
+                Mono<String> shared = answerUncoalesced(question)
+                        .doFinally(s -> answersInFlight.remove(k, self.get()))
+                        .cache();
+                self.set(shared);
+                return shared;
+            });
+            if (joined[0]) coalescedCounter.increment();
+            return flight;
+        });
+    }
+
+    private Mono<String> answerUncoalesced(String question) {
+        return embedQuestion(question)
+                .flatMap(q -> {
+                    String cached = cachedAnswer(q.orElse(null));
+                    if (cached != null) return Mono.just(cached);
+                    return buildKbContext(question, q.orElse(null))
+                            .flatMap(kb -> admission.admit(generate(question, kb))
+                                    .onErrorResume(e -> LlmAdmission.isOverloaded(e) && kbFallback(kb),
+                                            e -> Mono.just(kbOnlyAnswer(kb))));
+                });
+    }
+
+    private Mono<String> generate(String question, KbContext kb) {
+        return chat.complete(chatRequest(question, kb, numPredict))
+                .doOnNext(text -> {
+                    if (!text.isBlank()) cacheAnswer(kb, text);
+                });
     }
 }
@@ -0,0 +1,102 @@
+package org.example.parkinformatique.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.parkinformatique.Service.rag.ReindexJob;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs KB reindexing in the background, one job at a time. Starting while a job is
+ * running returns the running job; per-article reindexing waits for none and is refused
+ * instead. The last few finished jobs stay queryable.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReindexJobService {
+
+    private static final int KEEP_FINISHED = 20;
+
+    private final ChatbotIndexerService indexer;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "kb-reindex");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<String, ReindexJob> jobs = Collections.synchronizedMap(new LinkedHashMap<>());
+    private ReindexJob current;
+
+    public synchronized ReindexJob start() {
+        if (current != null && current.isRunning()) return current;
+        ReindexJob job = new ReindexJob(UUID.randomUUID().toString());
+        jobs.put(job.getId(), job);
+        current = job;
+        prune();
+        executor.submit(() -> run(job));
+        return job;
+    }
+
+    /**
+     * Re-embeds one article, refused while a full job runs: both would diff and rewrite the
+     * same rows. Holding the monitor also keeps a job from starting in the meantime.
+     */
+    public synchronized int reindexArticle(long articleId) throws Exception {
+        if (current != null && current.isRunning()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Reindex " + current.getId() + " en cours, réessayez après la fin du job.");
+        }
+        return indexer.reindexArticle(articleId);
+    }
+
+    private void run(ReindexJob job) {
+        try {
+            indexer.reindexAll(job);
+            job.finish();
+            log.info("Reindex {} {}: {}", job.getId(), job.getState(), job.snapshot());
+        } catch (Exception e) {
+            job.fail(e);
+            log.warn("Reindex {} failed: {}", job.getId(), e.toString());
+        }
+    }
+
+    public Optional<ReindexJob> get(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public Optional<ReindexJob> latest() {
+        return Optional.ofNullable(current);
+    }
+
+    public Optional<ReindexJob> cancel(String id) {
+        ReindexJob job = jobs.get(id);
+        if (job != null && job.isRunning()) job.cancel();
+        return Optional.ofNullable(job);
+    }
+
+    private void prune() {
+        synchronized (jobs) {
+            int finished = (int) jobs.values().stream().filter(j -> !j.isRunning()).count();
+            Iterator<ReindexJob> it = jobs.values().iterator();
+            while (finished > KEEP_FINISHED && it.hasNext()) {
+                if (!it.next().isRunning()) {
+                    it.remove();
+                    finished--;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (current != null) current.cancel();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.parkinformatique.Service.provider;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Chat completion backend, selected by rag.provider.chat (ollama | openai | synthetic).
+ * Exactly one implementation is active.
+ */
+public interface ChatProvider {
+
+    String model();
+
+    /** Answer tokens as they are generated. */
+    Flux<String> stream(ChatRequest request);
+
+    /** Whole answer in one response. */
+    Mono<String> complete(ChatRequest request);
+
+    /** Gets the model loaded on the backend; nothing to do by default. */
+    default Mono<Void> warmUp() {
+        return Mono.empty();
+    }
+}
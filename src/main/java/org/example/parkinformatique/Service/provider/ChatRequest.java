@@ -0,0 +1,8 @@
+package org.example.parkinformatique.Service.provider;
+
+/**
+ * One generation: system + user messages and the sampling budget.
+ * numCtx is a hint for backends with a configurable window (Ollama); others ignore it.
+ */
+public record ChatRequest(String system, String user, int numCtx, int numPredict, double temperature) {
+}
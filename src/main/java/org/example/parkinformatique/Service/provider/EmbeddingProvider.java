@@ -0,0 +1,23 @@
+package org.example.parkinformatique.Service.provider;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Text -> vector backend, selected by rag.provider.embedding (ollama | openai | onnx | synthetic).
+ * Exactly one implementation is active.
+ */
+public interface EmbeddingProvider {
+
+    /** Identifies the vector space: part of the content hashes and of the stored vector header. */
+    String model();
+
+    /** One vector per text, in input order. */
+    Mono<List<float[]>> embed(List<String> texts);
+
+    /** Gets the model loaded on the backend; nothing to do by default. */
+    default Mono<Void> warmUp() {
+        return Mono.empty();
+    }
+}
@@ -0,0 +1,189 @@
+package org.example.parkinformatique.Service.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.parkinformatique.Service.rag.OllamaChunk;
+import org.example.parkinformatique.Service.rag.OllamaStreamDecoder;
+import org.example.parkinformatique.config.ModelHttpClients;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/** Ollama: /api/generate for streaming (NDJSON), /api/chat for whole answers. */
+@Component
+@ConditionalOnProperty(name = "rag.provider.chat", havingValue = "ollama", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class OllamaChatProvider implements ChatProvider {
+
+    private final ModelHttpClients httpClients;
+    private final ObjectMapper mapper;
+
+    @Value("${rag.ollama.base-url:http://localhost:11434}")
+    private String baseUrl;
+
+    @Value("${rag.ollama.chat-model:llama3.2:1b-instruct-q4_K_M}")
+    private String chatModel;
+
+    @Value("${rag.ollama.keep-alive:1h}")
+    private String keepAlive;
+
+    // same window as every chat request, or the first question pays a reload
+    @Value("${rag.ollama.num-ctx:2048}")
+    private int numCtx;
+
+    private WebClient client;
+
+    @PostConstruct
+    void init() {
+        client = httpClients.webClient(baseUrl)
+                .codecs(c -> c.defaultCodecs().maxInMemorySize(8 * 1024 * 1024))
+                .build();
+    }
+
+    @Override
+    public String model() {
+        return chatModel;
+    }
+
+    @Override
+    public Flux<String> stream(ChatRequest request) {
+        Map<String, Object> body = Map.of(
+                "model", chatModel,
+                "stream", true,
+                "keep_alive", keepAlive,
+                "options", options(request),
+
+                "prompt", """
+<<SYS>>
+%s
+<</SYS>>
+
+%s
+""".formatted(request.system(), request.user())
+        );
+
+        return client.post()
+                .uri("/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .timeout(Duration.ofMinutes(5))
+                .transform(this::decodeOllamaStream)
+                .handle((OllamaChunk c, SynchronousSink<String> sink) -> {
+                    if (c.error() != null) sink.error(new IllegalStateException(c.error()));
+                    else if (!c.response().isEmpty()) sink.next(c.response());
+                })
+                .onErrorMap(WebClientRequestException.class, this::unreachable);
+    }
+
+    @Override
+    public Mono<String> complete(ChatRequest request) {
+        var body = Map.of(
+                "model", chatModel,
+                "stream", false,
+                "keep_alive", keepAlive,
+                "options", options(request),
+                "messages", List.of(
+                        Map.of("role", "system", "content", request.system()),
+                        Map.of("role", "user", "content", request.user())
+                )
+        );
+
+        return client.post()
+                .uri("/api/chat")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(Duration.ofSeconds(60))
+                .map(raw -> {
+                    String text = extractTextFromOllama(raw);
+                    return text != null && !text.isBlank() ? text : raw;
+                })
+                .onErrorMap(WebClientRequestException.class, this::unreachable);
+    }
+
+    /** Empty prompt: Ollama loads the model and returns without generating. */
+    @Override
+    public Mono<Void> warmUp() {
+        return client.post()
+                .uri("/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of(
+                        "model", chatModel,
+                        "prompt", "",
+                        "keep_alive", keepAlive,
+                        "options", Map.of("num_ctx", numCtx)))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .doOnNext(r -> log.debug("Ollama {} load_duration={} ms", chatModel,
+                        r.path("load_duration").asLong() / 1_000_000))
+                .then();
+    }
+
+    private static Map<String, Object> options(ChatRequest request) {
+        return Map.of(
+                "num_predict", request.numPredict(),
+                "temperature", request.temperature(),
+                "num_ctx", request.numCtx()
+        );
+    }
+
+    private IllegalStateException unreachable(WebClientRequestException e) {
+        return new IllegalStateException("Ollama unreachable at " + baseUrl + " — run `ollama serve`.", e);
+    }
+
+    /** NDJSON bytes -> lines, straight from the network buffers (see {@link OllamaStreamDecoder}). */
+    private Flux<OllamaChunk> decodeOllamaStream(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            OllamaStreamDecoder decoder = new OllamaStreamDecoder(mapper.getFactory());
+            return body
+                    .concatMapIterable(buf -> {
+                        List<OllamaChunk> lines = new ArrayList<>(2);
+                        try (DataBuffer.ByteBufferIterator it = buf.readableByteBuffers()) {
+                            while (it.hasNext()) decoder.feed(it.next(), lines::add);
+                        } finally {
+                            DataBufferUtils.release(buf);
+                        }
+                        return lines;
+                    })
+                    .concatWith(Flux.defer(() -> {
+                        List<OllamaChunk> lines = new ArrayList<>(1);
+                        decoder.finish(lines::add);
+                        return Flux.fromIterable(lines);
+                    }));
+        });
+    }
+
+    private String extractTextFromOllama(String raw) {
+        try {
+            JsonNode root = mapper.readTree(raw);
+            String c = root.path("message").path("content").asText(null); // /api/chat
+            if (c != null && !c.isBlank()) return c;
+            String r = root.path("response").asText(null);                // /api/generate
+            if (r != null && !r.isBlank()) return r;
+            return null;
+        } catch (Exception e) {
+            log.warn("Failed to parse Ollama JSON, returning raw", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.parkinformatique.Service.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.example.parkinformatique.Service.rag.VectorMath;
+import org.example.parkinformatique.config.ModelHttpClients;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ollama /api/embed (array input, one call per batch). Vectors come back L2-normalized,
+ * which leaves cosine scores unchanged.
+ */
+@Component
+@ConditionalOnProperty(name = "rag.provider.embedding", havingValue = "ollama", matchIfMissing = true)
+@RequiredArgsConstructor
+public class OllamaEmbeddingProvider implements EmbeddingProvider {
+
+    private final ModelHttpClients httpClients;
+
+    @Value("${rag.ollama.base-url:http://localhost:11434}")
+    private String baseUrl;
+
+    @Value("${rag.ollama.embedding-model:nomic-embed-text}")
+    private String embeddingModel;
+
+    @Value("${rag.ollama.keep-alive:1h}")
+    private String keepAlive;
+
+    private WebClient client;
+
+    @PostConstruct
+    void init() {
+        client = httpClients.webClient(baseUrl)
+                .codecs(c -> c.defaultCodecs().maxInMemorySize(8 * 1024 * 1024))
+                .build();
+    }
+
+    @Override
+    public String model() {
+        return embeddingModel;
+    }
+
+    @Override
+    public Mono<List<float[]>> embed(List<String> texts) {
+        if (texts.isEmpty()) return Mono.just(List.of());
+        return client.post()
+                .uri("/api/embed")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of(
+                        "model", embeddingModel,
+                        "keep_alive", keepAlive,
+                        "input", texts))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(resp -> {
+                    JsonNode arr = resp.path("embeddings");
+                    if (arr.size() != texts.size()) {
+                        throw new IllegalStateException("Ollama /api/embed returned " + arr.size() + " vectors for " + texts.size() + " inputs");
+                    }
+                    List<float[]> out = new ArrayList<>(arr.size());
+                    arr.forEach(v -> out.add(VectorMath.fromJson(v)));
+                    return out;
+                });
+    }
+
+    @Override
+    public Mono<Void> warmUp() {
+        return embed(List.of("warm-up")).then();
+    }
+}
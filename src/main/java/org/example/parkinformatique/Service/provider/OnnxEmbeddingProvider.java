@@ -0,0 +1,211 @@
+package org.example.parkinformatique.Service.provider;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.parkinformatique.Service.rag.VectorMath;
+import org.example.parkinformatique.Service.rag.WordPieceTokenizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * ONNX Runtime on the CPU, in the JVM: no HTTP round trip nor JSON for a query vector.
+ * Expects an ONNX export of the same weights as the Ollama model (model.onnx + vocab.txt),
+ * with the same pooling (mean over the attention mask) and L2 normalization, so vectors
+ * already stored in kb_embedding stay comparable; model() reports the Ollama model name
+ * for that reason (rag.onnx.model-id).
+ * <p>
+ * sessions x intra-op-threads should not exceed the cores: each session runs one batch at
+ * a time on its own threads, callers beyond the pool wait on the onnx-embed scheduler.
+ * <p>
+ * onnxruntime is compileOnly: the application must be built with -Ponnx to select this provider.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rag.provider.embedding", havingValue = "onnx")
+public class OnnxEmbeddingProvider implements EmbeddingProvider {
+
+    @Value("${rag.onnx.model-path:models/nomic-embed-text/model.onnx}")
+    private String modelPath;
+
+    @Value("${rag.onnx.vocab-path:models/nomic-embed-text/vocab.txt}")
+    private String vocabPath;
+
+    @Value("${rag.onnx.model-id:${rag.ollama.embedding-model:nomic-embed-text}}")
+    private String modelId;
+
+    @Value("${rag.onnx.lowercase:true}")
+    private boolean lowerCase;
+
+    // Ollama truncates nomic-embed-text inputs at 2048 tokens as well
+    @Value("${rag.onnx.max-tokens:2048}")
+    private int maxTokens;
+
+    @Value("${rag.onnx.sessions:2}")
+    private int sessionCount;
+
+    // 0 = cores / sessions
+    @Value("${rag.onnx.intra-op-threads:0}")
+    private int intraOpThreads;
+
+    @Value("${rag.onnx.batch-size:16}")
+    private int batchSize;
+
+    private OrtEnvironment env;
+    private WordPieceTokenizer tokenizer;
+    private BlockingQueue<OrtSession> sessions;
+    private Scheduler scheduler;
+    private boolean tokenTypes;
+    private String output;
+
+    @PostConstruct
+    void init() throws Exception {
+        Path model = Path.of(modelPath);
+        Path vocab = Path.of(vocabPath);
+        if (!Files.isReadable(model) || !Files.isReadable(vocab)) {
+            throw new IllegalStateException("rag.provider.embedding=onnx needs " + model.toAbsolutePath() + " and " + vocab.toAbsolutePath());
+        }
+        tokenizer = WordPieceTokenizer.load(vocab, lowerCase);
+        sessionCount = Math.max(1, sessionCount);
+        int threads = intraOpThreads > 0 ? intraOpThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / sessionCount);
+
+        env = OrtEnvironment.getEnvironment();
+        sessions = new ArrayBlockingQueue<>(sessionCount);
+        try (OrtSession.SessionOptions opts = new OrtSession.SessionOptions()) {
+            opts.setIntraOpNumThreads(threads);
+            opts.setInterOpNumThreads(1);
+            opts.setExecutionMode(OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL);
+            opts.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            for (int i = 0; i < sessionCount; i++) sessions.add(env.createSession(model.toString(), opts));
+        }
+        OrtSession first = sessions.peek();
+        tokenTypes = first.getInputNames().contains("token_type_ids");
+        // some exports already pool; otherwise mean over last_hidden_state
+        output = first.getOutputNames().contains("sentence_embedding") ? "sentence_embedding"
+                : first.getOutputNames().contains("last_hidden_state") ? "last_hidden_state"
+                : first.getOutputNames().iterator().next();
+        scheduler = Schedulers.newBoundedElastic(sessionCount, 10_000, "onnx-embed");
+        log.info("ONNX embeddings: {} ({} sessions x {} threads, output {})", model, sessionCount, threads, output);
+    }
+
+    @PreDestroy
+    void close() {
+        if (scheduler != null) scheduler.dispose();
+        if (sessions == null) return;
+        for (OrtSession s : sessions) {
+            try {
+                s.close();
+            } catch (OrtException e) {
+                log.warn("ONNX session close: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String model() {
+        return modelId;
+    }
+
+    @Override
+    public Mono<List<float[]>> embed(List<String> texts) {
+        if (texts.isEmpty()) return Mono.just(List.of());
+        return Mono.fromCallable(() -> embedNow(texts)).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Void> warmUp() {
+        return embed(List.of("warm-up")).then(); // first run allocates the arena and picks kernels
+    }
+
+    private List<float[]> embedNow(List<String> texts) throws Exception {
+        int[][] ids = new int[texts.size()][];
+        for (int i = 0; i < ids.length; i++) ids[i] = tokenizer.encode(texts.get(i), maxTokens);
+
+        // batches of similar lengths: padding is paid for by every row of the batch
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt(i -> ids[i].length));
+
+        float[][] out = new float[ids.length][];
+        OrtSession session = sessions.take();
+        try {
+            for (int from = 0; from < order.length; from += Math.max(1, batchSize)) {
+                int to = Math.min(order.length, from + Math.max(1, batchSize));
+                float[][] vectors = run(session, ids, order, from, to);
+                for (int k = from; k < to; k++) out[order[k]] = vectors[k - from];
+            }
+        } finally {
+            sessions.add(session);
+        }
+        return List.of(out);
+    }
+
+    private float[][] run(OrtSession session, int[][] ids, Integer[] order, int from, int to) throws OrtException {
+        int rows = to - from;
+        int len = ids[order[to - 1]].length; // sorted: the last one is the longest
+        long[][] inputIds = new long[rows][len];
+        long[][] mask = new long[rows][len];
+        for (int r = 0; r < rows; r++) {
+            int[] row = ids[order[from + r]];
+            for (int t = 0; t < row.length; t++) {
+                inputIds[r][t] = row[t];
+                mask[r][t] = 1;
+            }
+        }
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(env, inputIds));
+            inputs.put("attention_mask", OnnxTensor.createTensor(env, mask));
+            if (tokenTypes) inputs.put("token_type_ids", OnnxTensor.createTensor(env, new long[rows][len]));
+            try (OrtSession.Result result = session.run(inputs, Set.of(output))) {
+                OnnxValue value = result.get(0);
+                float[][] vectors = value.getValue() instanceof float[][] pooled ? pooled
+                        : meanPool((float[][][]) value.getValue(), mask);
+                for (int r = 0; r < vectors.length; r++) vectors[r] = VectorMath.normalize(vectors[r]);
+                return vectors;
+            }
+        } finally {
+            for (OnnxTensor t : inputs.values()) t.close();
+        }
+    }
+
+    /** Mean of the token states under the attention mask (padding excluded). */
+    private static float[][] meanPool(float[][][] hidden, long[][] mask) {
+        float[][] out = new float[hidden.length][];
+        for (int r = 0; r < hidden.length; r++) {
+            float[] sum = new float[hidden[r][0].length];
+            int n = 0;
+            for (int t = 0; t < hidden[r].length; t++) {
+                if (mask[r][t] == 0) continue;
+                float[] h = hidden[r][t];
+                for (int d = 0; d < sum.length; d++) sum[d] += h[d];
+                n++;
+            }
+            for (int d = 0; d < sum.length; d++) sum[d] /= Math.max(1, n);
+            out[r] = sum;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.parkinformatique.Service.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.example.parkinformatique.config.ModelHttpClients;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/** OpenAI /v1/chat/completions; streaming reads the SSE deltas. */
+@Component
+@ConditionalOnProperty(name = "rag.provider.chat", havingValue = "openai")
+@RequiredArgsConstructor
+public class OpenAiChatProvider implements ChatProvider {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE = new ParameterizedTypeReference<>() {};
+
+    private final ModelHttpClients httpClients;
+    private final ObjectMapper mapper;
+
+    @Value("${rag.openai.base-url:https://api.openai.com}")
+    private String baseUrl;
+
+    @Value("${openai.api.key:}")
+    private String apiKey;
+
+    @Value("${rag.openai.chat-model:gpt-4o-mini}")
+    private String chatModel;
+
+    private WebClient client;
+
+    @PostConstruct
+    void init() {
+        if (apiKey == null || apiKey.isBlank()) throw new IllegalStateException("OPENAI_API_KEY manquant");
+        client = httpClients.webClient(baseUrl)
+                .defaultHeaders(h -> h.setBearerAuth(apiKey))
+                .build();
+    }
+
+    @Override
+    public String model() {
+        return chatModel;
+    }
+
+    @Override
+    public Flux<String> stream(ChatRequest request) {
+        return client.post()
+                .uri("/v1/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(body(request, true))
+                .retrieve()
+                .bodyToFlux(SSE)
+                .timeout(Duration.ofMinutes(5))
+                .map(e -> e.data() == null ? "" : e.data())
+                .takeWhile(data -> !"[DONE]".equals(data.trim()))
+                .handle((String data, SynchronousSink<String> sink) -> {
+                    if (data.isBlank()) return;
+                    try {
+                        String delta = mapper.readTree(data).path("choices").path(0).path("delta").path("content").asText("");
+                        if (!delta.isEmpty()) sink.next(delta);
+                    } catch (Exception e) {
+                        sink.error(new IllegalStateException("Invalid OpenAI stream chunk", e));
+                    }
+                });
+    }
+
+    @Override
+    public Mono<String> complete(ChatRequest request) {
+        return client.post()
+                .uri("/v1/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body(request, false))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(Duration.ofSeconds(60))
+                .map(root -> {
+                    String answer = root.path("choices").path(0).path("message").path("content").asText();
+                    return (answer == null || answer.isBlank()) ? "Désolé, je n'ai pas trouvé de réponse." : answer;
+                });
+    }
+
+    private Map<String, Object> body(ChatRequest request, boolean stream) {
+        return Map.of(
+                "model", chatModel,
+                "stream", stream,
+                "temperature", request.temperature(),
+                "max_tokens", request.numPredict(),
+                "messages", List.of(
+                        Map.of("role", "system", "content", request.system()),
+                        Map.of("role", "user", "content", request.user())
+                )
+        );
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.parkinformatique.Service.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.example.parkinformatique.Service.rag.VectorMath;
+import org.example.parkinformatique.config.ModelHttpClients;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/** OpenAI /v1/embeddings (array input); vectors are returned normalized. */
+@Component
+@ConditionalOnProperty(name = "rag.provider.embedding", havingValue = "openai")
+@RequiredArgsConstructor
+public class OpenAiEmbeddingProvider implements EmbeddingProvider {
+
+    private final ModelHttpClients httpClients;
+
+    @Value("${rag.openai.base-url:https://api.openai.com}")
+    private String baseUrl;
+
+    @Value("${openai.api.key:}")
+    private String apiKey;
+
+    @Value("${rag.openai.embedding-model:text-embedding-3-small}")
+    private String embeddingModel;
+
+    private WebClient client;
+
+    @PostConstruct
+    void init() {
+        if (apiKey == null || apiKey.isBlank()) throw new IllegalStateException("OPENAI_API_KEY manquant");
+        client = httpClients.webClient(baseUrl)
+                .defaultHeaders(h -> h.setBearerAuth(apiKey))
+                .codecs(c -> c.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+                .build();
+    }
+
+    @Override
+    public String model() {
+        return "openai:" + embeddingModel;
+    }
+
+    @Override
+    public Mono<List<float[]>> embed(List<String> texts) {
+        if (texts.isEmpty()) return Mono.just(List.of());
+        return client.post()
+                .uri("/v1/embeddings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("model", embeddingModel, "input", texts))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(resp -> {
+                    JsonNode data = resp.path("data");
+                    if (data.size() != texts.size()) {
+                        throw new IllegalStateException("OpenAI returned " + data.size() + " vectors for " + texts.size() + " inputs");
+                    }
+                    float[][] out = new float[texts.size()][];
+                    for (JsonNode d : data) out[d.path("index").asInt()] = VectorMath.fromJson(d.path("embedding"));
+                    return Arrays.asList(out);
+                });
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.parkinformatique.Service.provider;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * In-JVM stand-in for load tests and offline runs: after first-token-latency (prefill), emits
+ * num_predict words at tokens-per-second (decode), on timers, so no thread is held per
+ * request. Words are drawn from the prompt with a seed derived from it: the same request
+ * always yields the same answer.
+ */
+@Component
+@ConditionalOnProperty(name = "rag.provider.chat", havingValue = "synthetic")
+public class SyntheticChatProvider implements ChatProvider {
+
+    @Value("${rag.provider.synthetic.first-token-latency:300ms}")
+    private Duration firstTokenLatency;
+
+    // 0 = as fast as the subscriber reads
+    @Value("${rag.provider.synthetic.tokens-per-second:30}")
+    private double tokensPerSecond;
+
+    @Override
+    public String model() {
+        return "synthetic";
+    }
+
+    @Override
+    public Flux<String> stream(ChatRequest request) {
+        List<String> words = answer(request);
+        Flux<String> tokens = tokensPerSecond <= 0
+                ? Flux.fromIterable(words)
+                : Flux.interval(Duration.ZERO, Duration.ofNanos((long) (1e9 / tokensPerSecond)))
+                        .take(words.size())
+                        .map(i -> words.get(i.intValue()));
+        return firstTokenLatency.isZero() ? tokens : tokens.delaySubscription(firstTokenLatency);
+    }
+
+    @Override
+    public Mono<String> complete(ChatRequest request) {
+        return stream(request).collect(StringBuilder::new, StringBuilder::append).map(StringBuilder::toString);
+    }
+
+    private static List<String> answer(ChatRequest request) {
+        String prompt = request.user() == null ? "" : request.user();
+        String[] vocab = prompt.isBlank() ? new String[]{"ok"} : prompt.trim().split("\\s+");
+        SplittableRandom rnd = new SplittableRandom(SyntheticEmbeddingProvider.hash(prompt, 0, prompt.length()));
+        int n = Math.max(1, request.numPredict());
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(vocab[rnd.nextInt(vocab.length)] + (i + 1 < n ? " " : ""));
+        return out;
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.parkinformatique.Service.provider;
+
+import org.example.parkinformatique.Service.rag.VectorMath;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * In-JVM stand-in for load tests and offline runs: each word is hashed into one signed
+ * dimension (feature hashing), then the vector is L2-normalized. Deterministic, and texts
+ * sharing words stay close, so retrieval still behaves like retrieval. embed-latency is
+ * added per call to mimic the network + model.
+ */
+@Component
+@ConditionalOnProperty(name = "rag.provider.embedding", havingValue = "synthetic")
+public class SyntheticEmbeddingProvider implements EmbeddingProvider {
+
+    @Value("${rag.provider.synthetic.dim:768}")
+    private int dim;
+
+    @Value("${rag.provider.synthetic.embed-latency:0ms}")
+    private Duration latency;
+
+    @Override
+    public String model() {
+        return "synthetic-hash-" + dim;
+    }
+
+    @Override
+    public Mono<List<float[]>> embed(List<String> texts) {
+        Mono<List<float[]>> vectors = Mono.fromCallable(() -> {
+            List<float[]> out = new ArrayList<>(texts.size());
+            for (String t : texts) out.add(vector(t));
+            return out;
+        });
+        return latency.isZero() ? vectors : Mono.delay(latency).then(vectors.subscribeOn(Schedulers.parallel()));
+    }
+
+    float[] vector(String text) {
+        float[] v = new float[dim];
+        String s = text == null ? "" : text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean word = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+            if (word && start < 0) start = i;
+            if (!word && start >= 0) {
+                long h = hash(s, start, i);
+                v[(int) Long.remainderUnsigned(h, dim)] += (h & (1L << 63)) == 0 ? 1f : -1f;
+                start = -1;
+            }
+        }
+        boolean empty = true;
+        for (float x : v) if (x != 0) { empty = false; break; }
+        if (empty) v[0] = 1f;
+        return VectorMath.normalize(v);
+    }
+
+    /** FNV-1a 64 with a murmur finalizer: stable across JVMs and runs, unlike identity hashes. */
+    static long hash(CharSequence s, int from, int to) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,212 @@
+package org.example.parkinformatique.Service.rag;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over chunk texts, scored with Okapi BM25 (k1 = 1.2, b = 0.75).
+ * Postings are parallel int[] (doc slot, term frequency) grown by doubling. Removal leaves a
+ * tombstone (the slot's chunk becomes null, document frequencies are decremented) and the
+ * index compacts itself once tombstones outnumber live chunks. Not thread-safe.
+ */
+public class Bm25Index {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] tfs = new int[4];
+        int size;
+        int df; // live documents only
+
+        void add(int doc, int tf) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            docs[size] = doc;
+            tfs[size] = tf;
+            size++;
+            df++;
+        }
+    }
+
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private KbChunk[] docs = new KbChunk[16];
+    private int[] lengths = new int[16];
+    private int slots;
+    private int live;
+    private long liveLength;
+
+    public void add(KbChunk c) {
+        remove(c.id());
+        Map<String, Integer> tf = termFrequencies(c.text());
+        if (slots == docs.length) {
+            docs = Arrays.copyOf(docs, slots * 2);
+            lengths = Arrays.copyOf(lengths, slots * 2);
+        }
+        int slot = slots++;
+        int len = 0;
+        for (Map.Entry<String, Integer> e : tf.entrySet()) {
+            terms.computeIfAbsent(e.getKey(), k -> new Postings()).add(slot, e.getValue());
+            len += e.getValue();
+        }
+        docs[slot] = c;
+        lengths[slot] = len;
+        slotById.put(c.id(), slot);
+        live++;
+        liveLength += len;
+    }
+
+    public void remove(long chunkId) {
+        Integer slot = slotById.remove(chunkId);
+        if (slot == null) return;
+        for (String t : termFrequencies(docs[slot].text()).keySet()) {
+            Postings p = terms.get(t);
+            if (p != null) p.df--;
+        }
+        docs[slot] = null;
+        live--;
+        liveLength -= lengths[slot];
+        if (slots - live > Math.max(1024, live)) compact();
+    }
+
+    public void removeArticle(long articleId) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < slots; i++) {
+            if (docs[i] != null && docs[i].articleId() == articleId) ids.add(docs[i].id());
+        }
+        ids.forEach(this::remove);
+    }
+
+    public void clear() {
+        terms.clear();
+        slotById.clear();
+        docs = new KbChunk[16];
+        lengths = new int[16];
+        slots = 0;
+        live = 0;
+        liveLength = 0;
+    }
+
+    public int size() {
+        return live;
+    }
+
+    public int termCount() {
+        return terms.size();
+    }
+
+    public List<KbHit> search(String query, int k) {
+        if (live == 0 || query == null) return List.of();
+        List<Postings> hits = new ArrayList<>();
+        int walked = 0;
+        for (String t : termFrequencies(query).keySet()) {
+            Postings p = terms.get(t);
+            if (p == null || p.df <= 0) continue;
+            hits.add(p);
+            walked += p.size;
+        }
+        if (hits.isEmpty()) return List.of();
+
+        // accumulators sized by the postings walked, not by the corpus
+        Scores acc = new Scores(walked);
+        float avgLen = (float) liveLength / live;
+        for (Postings p : hits) {
+            float idf = (float) Math.log(1 + (live - p.df + 0.5) / (p.df + 0.5));
+            for (int i = 0; i < p.size; i++) {
+                int d = p.docs[i];
+                if (docs[d] == null) continue;
+                int tf = p.tfs[i];
+                float norm = K1 * (1 - B + B * lengths[d] / avgLen);
+                acc.add(d, idf * tf * (K1 + 1) / (tf + norm));
+            }
+        }
+        TopK top = new TopK(k);
+        for (int i = 0; i < acc.keys.length; i++) {
+            if (acc.keys[i] >= 0) top.offer(acc.vals[i], acc.keys[i]);
+        }
+        int[] best = new int[top.size()];
+        float[] scores = new float[top.size()];
+        int n = top.drainDescending(best, scores);
+        List<KbHit> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(new KbHit(docs[best[i]], scores[i]));
+        return out;
+    }
+
+    /** doc slot -> score, open addressing (linear probing), at most half full. */
+    private static final class Scores {
+        final int[] keys;
+        final float[] vals;
+        final int mask;
+
+        Scores(int expected) {
+            int cap = Integer.highestOneBit(Math.max(2, expected) * 2 - 1) << 1;
+            keys = new int[cap];
+            vals = new float[cap];
+            mask = cap - 1;
+            Arrays.fill(keys, -1);
+        }
+
+        void add(int key, float v) {
+            int h = key * 0x9E3779B9;
+            int i = (h ^ (h >>> 16)) & mask;
+            while (keys[i] >= 0 && keys[i] != key) i = (i + 1) & mask;
+            keys[i] = key;
+            vals[i] += v;
+        }
+    }
+
+    private void compact() {
+        List<KbChunk> keep = new ArrayList<>(live);
+        for (int i = 0; i < slots; i++) if (docs[i] != null) keep.add(docs[i]);
+        clear();
+        keep.forEach(this::add);
+    }
+
+    /**
+     * Lower-cased, accent-free runs of letters/digits. Tokens joined by - _ . / (error codes,
+     * model numbers, versions: "0x8007-0005", "LaserJet-M404", "v2.1") are also indexed glued
+     * together, so a verbatim paste matches both its parts and the whole.
+     */
+    static Map<String, Integer> termFrequencies(String text) {
+        Map<String, Integer> tf = new HashMap<>();
+        if (text == null || text.isEmpty()) return tf;
+        String s = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        StringBuilder token = new StringBuilder();
+        StringBuilder compound = new StringBuilder();
+        int parts = 0;
+        for (int i = 0; i <= s.length(); i++) {
+            char ch = i < s.length() ? s.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(ch)) {
+                token.append(ch);
+                compound.append(ch);
+                continue;
+            }
+            if (token.length() > 0) {
+                term(tf, token);
+                parts++;
+                token.setLength(0);
+            }
+            boolean joiner = (ch == '-' || ch == '_' || ch == '.' || ch == '/')
+                    && i > 0 && Character.isLetterOrDigit(s.charAt(i - 1))
+                    && i + 1 < s.length() && Character.isLetterOrDigit(s.charAt(i + 1));
+            if (!joiner) {
+                if (parts > 1) term(tf, compound);
+                compound.setLength(0);
+                parts = 0;
+            }
+        }
+        return tf;
+    }
+
+    private static void term(Map<String, Integer> tf, CharSequence t) {
+        if (t.length() < 2) return;
+        tf.merge(t.toString(), 1, Integer::sum);
+    }
+}
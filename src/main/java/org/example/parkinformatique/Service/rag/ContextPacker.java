@@ -0,0 +1,42 @@
+package org.example.parkinformatique.Service.rag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Fills a token budget with retrieved chunks, best first, never cutting one: a chunk that
+ * does not fit is skipped and the next (smaller) ones are still tried.
+ */
+public final class ContextPacker {
+
+    public record Packed<T>(List<T> items, String text, int tokens) {}
+
+    private ContextPacker() {}
+
+    /**
+     * @param ranked    candidates, best first
+     * @param budget    tokens available for the joined text, separators included
+     * @param maxItems  upper bound on the number of chunks kept
+     */
+    public static <T> Packed<T> pack(List<T> ranked, Function<T, String> text, ToIntFunction<T> tokens,
+                                     int budget, int maxItems, String separator) {
+        int sepTokens = TokenEstimator.estimate(separator);
+        List<T> items = new ArrayList<>();
+        StringBuilder out = new StringBuilder();
+        int used = 0;
+        for (T c : ranked) {
+            if (items.size() >= maxItems) break;
+            String t = text.apply(c);
+            if (t == null || t.isBlank()) continue;
+            int cost = tokens.applyAsInt(c) + (items.isEmpty() ? 0 : sepTokens);
+            if (used + cost > budget) continue;
+            if (!items.isEmpty()) out.append(separator);
+            out.append(t);
+            items.add(c);
+            used += cost;
+        }
+        return new Packed<>(items, out.toString(), used);
+    }
+}
@@ -0,0 +1,307 @@
+package org.example.parkinformatique.Service.rag;
+
+import java.util.*;
+
+/**
+ * Hierarchical Navigable Small World graph (Malkov &amp; Yashunin) over cosine similarity.
+ * Vectors are normalized on insert so the distance is 1 - dot.
+ * Deletes are soft: the node keeps routing traffic but never shows up in results;
+ * {@link #deletedRatio()} tells the owner when a rebuild is worth it.
+ * Not thread-safe: the owner serializes writes against reads.
+ */
+public class HnswIndex {
+
+    private final int dim;
+    private final int m;
+    private final int mMax0;
+    private final int efConstruction;
+    private final double levelMult;
+    private final Random random = new Random(42);
+
+    private int count;
+    private int deleted;
+    private float[][] vecs = new float[16][];
+    private long[] labels = new long[16];
+    private int[][][] links = new int[16][][];   // links[node][level] = {n, id1, id2, ...}
+    private boolean[] removed = new boolean[16];
+    private final Map<Long, Integer> nodeByLabel = new HashMap<>();
+
+    private int entry = -1;
+    private int maxLevel = -1;
+
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    public HnswIndex(int dim, int m, int efConstruction) {
+        this.dim = dim;
+        this.m = Math.max(2, m);
+        this.mMax0 = this.m * 2;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.levelMult = 1.0 / Math.log(this.m);
+    }
+
+    public int dimension() { return dim; }
+
+    public int size() { return count - deleted; }
+
+    public double deletedRatio() { return count == 0 ? 0 : (double) deleted / count; }
+
+    /* ------------ WRITE ------------ */
+
+    public void add(long label, float[] v) {
+        if (v.length != dim) throw new IllegalArgumentException("dim " + v.length + " != " + dim);
+        remove(label);
+
+        int node = count++;
+        grow(node + 1);
+        float[] q = VectorMath.normalize(v);
+        int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMult);
+        vecs[node] = q;
+        labels[node] = label;
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) links[node][l] = new int[1 + (l == 0 ? mMax0 : m)];
+        nodeByLabel.put(label, node);
+
+        if (entry < 0) {
+            entry = node;
+            maxLevel = level;
+            return;
+        }
+
+        int cur = entry;
+        float curDist = distance(q, cur);
+        for (int l = maxLevel; l > level; l--) {
+            int[] greedy = greedy(q, cur, curDist, l);
+            cur = greedy[0];
+            curDist = Float.intBitsToFloat(greedy[1]);
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            long[] w = searchLayer(q, cur, efConstruction, l, false);
+            int[] selected = selectNeighbors(w, m);
+            for (int nb : selected) {
+                append(node, l, nb);
+                connectBack(nb, l, node);
+            }
+            cur = (int) w[0];
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entry = node;
+        }
+    }
+
+    public boolean remove(long label) {
+        Integer node = nodeByLabel.remove(label);
+        if (node == null) return false;
+        removed[node] = true;
+        deleted++;
+        return true;
+    }
+
+    /* ------------ READ ------------ */
+
+    /** @return labels of the k nearest live nodes, best first, with their cosine similarity. */
+    public List<Map.Entry<Long, Float>> search(float[] v, int k, int efSearch) {
+        if (entry < 0 || v.length != dim || size() == 0) return List.of();
+        float[] q = VectorMath.normalize(v);
+        int cur = entry;
+        float curDist = distance(q, cur);
+        for (int l = maxLevel; l > 0; l--) {
+            int[] greedy = greedy(q, cur, curDist, l);
+            cur = greedy[0];
+            curDist = Float.intBitsToFloat(greedy[1]);
+        }
+        long[] w = searchLayer(q, cur, Math.max(k, efSearch), 0, true);
+        List<Map.Entry<Long, Float>> out = new ArrayList<>(Math.min(k, w.length));
+        for (int i = 0; i < w.length && out.size() < k; i++) {
+            int node = (int) w[i];
+            out.add(Map.entry(labels[node], 1f - distOf(w[i])));
+        }
+        return out;
+    }
+
+    /* ------------ GRAPH ------------ */
+
+    private int[] greedy(float[] q, int cur, float curDist, int level) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] nb = links[cur][level];
+            for (int i = 1; i <= nb[0]; i++) {
+                float d = distance(q, nb[i]);
+                if (d < curDist) {
+                    curDist = d;
+                    cur = nb[i];
+                    changed = true;
+                }
+            }
+        }
+        return new int[]{cur, Float.floatToIntBits(curDist)};
+    }
+
+    /**
+     * Beam search on one layer. Entries are packed as (floatBits(dist) &lt;&lt; 32 | node):
+     * distances are non-negative so the packed longs sort like the distances.
+     * @return packed entries sorted by ascending distance
+     */
+    private long[] searchLayer(float[] q, int ep, int ef, int level, boolean skipRemoved) {
+        Visited seen = visited.get();
+        seen.reset(count);
+        LongHeap candidates = new LongHeap(ef * 2);    // min-heap on distance
+        LongHeap results = new LongHeap(ef + 1);       // max-heap (stores negated keys)
+
+        long first = pack(distance(q, ep), ep);
+        seen.mark(ep);
+        candidates.push(first);
+        if (!skipRemoved || !removed[ep]) results.push(-first);
+
+        while (candidates.size() > 0) {
+            long c = candidates.pop();
+            if (results.size() >= ef && distOf(c) > distOf(-results.peek())) break;
+            int[] nb = links[(int) c][level];
+            for (int i = 1; i <= nb[0]; i++) {
+                int e = nb[i];
+                if (!seen.mark(e)) continue;
+                float d = distance(q, e);
+                if (results.size() < ef || d < distOf(-results.peek())) {
+                    long p = pack(d, e);
+                    candidates.push(p);
+                    if (!skipRemoved || !removed[e]) {
+                        results.push(-p);
+                        if (results.size() > ef) results.pop();
+                    }
+                }
+            }
+        }
+
+        long[] out = new long[results.size()];
+        for (int i = out.length - 1; i >= 0; i--) out[i] = -results.pop();
+        return out;
+    }
+
+    /** Diversity heuristic: keep a candidate only if it is closer to q than to every kept neighbor. */
+    private int[] selectNeighbors(long[] sorted, int max) {
+        int[] kept = new int[Math.min(max, sorted.length)];
+        int n = 0;
+        boolean[] used = new boolean[sorted.length];
+        for (int i = 0; i < sorted.length && n < kept.length; i++) {
+            int c = (int) sorted[i];
+            float dq = distOf(sorted[i]);
+            boolean good = true;
+            for (int j = 0; j < n; j++) {
+                if (distance(vecs[c], kept[j]) < dq) { good = false; break; }
+            }
+            if (good) { kept[n++] = c; used[i] = true; }
+        }
+        for (int i = 0; i < sorted.length && n < kept.length; i++) {
+            if (!used[i]) kept[n++] = (int) sorted[i];
+        }
+        return n == kept.length ? kept : Arrays.copyOf(kept, n);
+    }
+
+    private void connectBack(int node, int level, int other) {
+        int[] nb = links[node][level];
+        int cap = nb.length - 1;
+        if (nb[0] < cap) {
+            nb[++nb[0]] = other;
+            return;
+        }
+        long[] cand = new long[cap + 1];
+        for (int i = 1; i <= cap; i++) cand[i - 1] = pack(distance(vecs[node], nb[i]), nb[i]);
+        cand[cap] = pack(distance(vecs[node], other), other);
+        Arrays.sort(cand);
+        int[] sel = selectNeighbors(cand, cap);
+        nb[0] = sel.length;
+        System.arraycopy(sel, 0, nb, 1, sel.length);
+    }
+
+    private void append(int node, int level, int other) {
+        int[] nb = links[node][level];
+        if (nb[0] < nb.length - 1) nb[++nb[0]] = other;
+    }
+
+    private void grow(int n) {
+        if (n <= vecs.length) return;
+        int cap = Math.max(n, vecs.length * 2);
+        vecs = Arrays.copyOf(vecs, cap);
+        labels = Arrays.copyOf(labels, cap);
+        links = Arrays.copyOf(links, cap);
+        removed = Arrays.copyOf(removed, cap);
+    }
+
+    private float distance(float[] q, int node) {
+        return Math.max(0f, 1f - VectorMath.dot(q, vecs[node], 0, dim));
+    }
+
+    private static long pack(float dist, int node) {
+        return ((long) Float.floatToIntBits(dist) << 32) | (node & 0xffffffffL);
+    }
+
+    private static float distOf(long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+
+    /* ------------ helpers ------------ */
+
+    /** Generation-stamped visited set, reused per thread to avoid an O(n) clear per query. */
+    private static final class Visited {
+        private int[] stamp = new int[0];
+        private int gen;
+
+        void reset(int n) {
+            if (stamp.length < n) stamp = new int[Math.max(n, stamp.length * 2)];
+            if (++gen == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                gen = 1;
+            }
+        }
+
+        boolean mark(int node) {
+            if (stamp[node] == gen) return false;
+            stamp[node] = gen;
+            return true;
+        }
+    }
+
+    /** Primitive binary min-heap of longs. */
+    private static final class LongHeap {
+        private long[] a;
+        private int n;
+
+        LongHeap(int cap) { a = new long[Math.max(4, cap)]; }
+
+        int size() { return n; }
+
+        long peek() { return a[0]; }
+
+        void push(long x) {
+            if (n == a.length) a = Arrays.copyOf(a, n * 2);
+            int i = n++;
+            while (i > 0) {
+                int p = (i - 1) >>> 1;
+                if (a[p] <= x) break;
+                a[i] = a[p];
+                i = p;
+            }
+            a[i] = x;
+        }
+
+        long pop() {
+            long top = a[0];
+            long x = a[--n];
+            int i = 0;
+            while (true) {
+                int l = 2 * i + 1;
+                if (l >= n) break;
+                int r = l + 1;
+                int c = (r < n && a[r] < a[l]) ? r : l;
+                if (a[c] >= x) break;
+                a[i] = a[c];
+                i = c;
+            }
+            a[i] = x;
+            return top;
+        }
+    }
+}
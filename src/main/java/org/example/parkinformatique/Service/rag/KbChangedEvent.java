@@ -0,0 +1,11 @@
+package org.example.parkinformatique.Service.rag;
+
+import java.util.Set;
+
+/**
+ * Published after commit when KB chunks change; {@code articleIds == null} means the whole KB.
+ * {@code added}: an article (or chunk) that was not indexed before, which may answer questions
+ * that used to draw on other articles.
+ */
+public record KbChangedEvent(Set<Long> articleIds, boolean added) {
+}
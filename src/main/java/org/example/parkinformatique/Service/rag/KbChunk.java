@@ -0,0 +1,11 @@
+package org.example.parkinformatique.Service.rag;
+
+/** Chunk metadata kept resident next to its vector (no entity, no lazy proxy). */
+public record KbChunk(
+        long id,
+        long articleId,
+        int chunkIndex,
+        String text,
+        int tokens    // TokenEstimator count, computed at index time
+) {
+}
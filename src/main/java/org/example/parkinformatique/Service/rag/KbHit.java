@@ -0,0 +1,4 @@
+package org.example.parkinformatique.Service.rag;
+
+public record KbHit(KbChunk chunk, float score) {
+}
@@ -0,0 +1,8 @@
+package org.example.parkinformatique.Service.rag;
+
+/**
+ * One line of an Ollama stream (/api/generate or /api/chat): the token text, the final
+ * flag, the conversation context sent with the last line (null otherwise), or an error.
+ */
+public record OllamaChunk(String response, boolean done, int[] context, String error) {
+}
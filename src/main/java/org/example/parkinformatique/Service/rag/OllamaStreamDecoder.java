@@ -0,0 +1,128 @@
+package org.example.parkinformatique.Service.rag;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.core.json.async.NonBlockingByteBufferJsonParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Incremental NDJSON decoder for Ollama streams, on Jackson's non-blocking parser: bytes are
+ * fed as they arrive (a line may span several buffers, a buffer may hold several lines) and
+ * only response / message.content, done, context and error are read. No JsonNode tree,
+ * no per-line String; field names come from the parser's symbol table.
+ * One instance per stream, not thread-safe.
+ */
+public class OllamaStreamDecoder {
+
+    private final NonBlockingByteBufferJsonParser parser;
+    private final ByteBufferFeeder feeder;
+
+    private int depth;
+    private String field;         // last field name at depth 1
+    private boolean inMessage;    // inside "message": {...} (/api/chat)
+    private String messageField;  // last field name inside "message"
+    private int skipDepth = -1;   // skipping an unknown nested value until depth drops back
+
+    private String response;
+    private boolean done;
+    private int[] context;
+    private int contextSize = -1; // >= 0 while reading "context": [...]
+    private String error;
+
+    public OllamaStreamDecoder(JsonFactory factory) {
+        try {
+            this.parser = (NonBlockingByteBufferJsonParser) factory.createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = parser;
+    }
+
+    /** Consumes the whole buffer; complete lines are passed to {@code out}. */
+    public void feed(ByteBuffer bytes, Consumer<OllamaChunk> out) {
+        try {
+            feeder.feedInput(bytes);
+            drain(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** End of the HTTP body; fails if the last line was cut off. */
+    public void finish(Consumer<OllamaChunk> out) {
+        try {
+            feeder.endOfInput();
+            drain(out);
+            if (depth != 0) throw new IOException("Ollama stream ended inside a JSON object");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void drain(Consumer<OllamaChunk> out) throws IOException {
+        JsonToken t;
+        while ((t = parser.nextToken()) != null && t != JsonToken.NOT_AVAILABLE) {
+            switch (t) {
+                case START_OBJECT, START_ARRAY -> {
+                    depth++;
+                    if (skipDepth >= 0) continue;
+                    if (depth == 2 && t == JsonToken.START_ARRAY && "context".equals(field)) {
+                        if (context == null) context = new int[1024];
+                        contextSize = 0;
+                    } else if (depth == 2 && t == JsonToken.START_OBJECT && "message".equals(field)) {
+                        inMessage = true;
+                    } else if (depth > 1) {
+                        skipDepth = depth - 1;
+                    }
+                }
+                case END_OBJECT, END_ARRAY -> {
+                    depth--;
+                    if (skipDepth >= 0) {
+                        if (depth == skipDepth) skipDepth = -1;
+                        continue;
+                    }
+                    if (depth == 1) inMessage = false;
+                    if (depth == 0) emit(out);
+                }
+                case FIELD_NAME -> {
+                    if (depth == 1) field = parser.currentName();
+                    else if (depth == 2 && inMessage) messageField = parser.currentName();
+                }
+                case VALUE_NUMBER_INT -> {
+                    if (contextSize >= 0 && skipDepth < 0 && depth == 2) {
+                        if (contextSize == context.length) context = Arrays.copyOf(context, contextSize * 2);
+                        context[contextSize++] = parser.getIntValue();
+                    }
+                }
+                case VALUE_STRING -> {
+                    if (skipDepth >= 0) continue;
+                    if (depth == 1 && "response".equals(field)) response = parser.getText();
+                    else if (depth == 1 && "error".equals(field)) error = parser.getText();
+                    else if (depth == 2 && inMessage && "content".equals(messageField)) response = parser.getText();
+                }
+                case VALUE_TRUE -> {
+                    if (depth == 1 && skipDepth < 0 && "done".equals(field)) done = true;
+                }
+                default -> { }
+            }
+        }
+    }
+
+    private void emit(Consumer<OllamaChunk> out) {
+        int[] ctx = contextSize >= 0 ? Arrays.copyOf(context, contextSize) : null;
+        out.accept(new OllamaChunk(response == null ? "" : response, done, ctx, error));
+        response = null;
+        done = false;
+        contextSize = -1;
+        error = null;
+        field = null;
+        inMessage = false;
+        messageField = null;
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.parkinformatique.Service.rag;
+
+/**
+ * Scalar (int8) and sign (1-bit) quantization of embedding rows.
+ * int8: code = round(x / scale), scale = max|x| / 127  -> 1 byte per dim (4x smaller than float32).
+ * binary: bit = x &gt; 0, packed in longs              -> 1 bit per dim (32x smaller than float32).
+ * float16 rows ({@link #toHalves}) are the compact re-rank source: 2 bytes per dim.
+ * The int8 dot product runs on the Vector API when {@link VectorMath#simd()} and the
+ * SIMD unit is 256 bits or wider.
+ */
+public final class Quantizer {
+
+    public enum Mode { NONE, INT8, BINARY }
+
+    private static final boolean SIMD_INT8 = simdInt8();
+
+    private Quantizer() {}
+
+    private static boolean simdInt8() {
+        if (!VectorMath.simd()) return false;
+        try {
+            return SimdDot.int8Usable();
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    public static Mode mode(String value) {
+        if (value == null) return Mode.NONE;
+        return switch (value.trim().toLowerCase()) {
+            case "int8" -> Mode.INT8;
+            case "binary", "bit", "1bit" -> Mode.BINARY;
+            default -> Mode.NONE;
+        };
+    }
+
+    public static int words(int dim) {
+        return (dim + 63) >>> 6;
+    }
+
+    /** Writes dim int8 codes at dst[off..] and returns the row scale. */
+    public static float quantizeInt8(float[] v, byte[] dst, int off) {
+        float max = 0;
+        for (float x : v) max = Math.max(max, Math.abs(x));
+        float scale = max == 0 ? 1f : max / 127f;
+        float inv = 1f / scale;
+        for (int i = 0; i < v.length; i++) {
+            dst[off + i] = (byte) Math.round(v[i] * inv);
+        }
+        return scale;
+    }
+
+    /** Asymmetric dot product: float query against an int8 row (scale applied by the caller). */
+    public static float dotInt8(float[] q, byte[] codes, int off, int dim) {
+        return SIMD_INT8 ? SimdDot.dotInt8(q, codes, off, dim) : dotInt8Scalar(q, codes, off, dim);
+    }
+
+    static float dotInt8Scalar(float[] q, byte[] codes, int off, int dim) {
+        float s = 0;
+        for (int i = 0; i < dim; i++) s += q[i] * codes[off + i];
+        return s;
+    }
+
+    /** Writes v as dim IEEE binary16 values at dst[off..]. */
+    public static void toHalves(float[] v, short[] dst, int off) {
+        for (int i = 0; i < v.length; i++) dst[off + i] = VectorCodec.toHalf(v[i]);
+    }
+
+    /** Dot product of q with the float16 row at rows[off..off+dim). */
+    public static float dotHalf(float[] q, short[] rows, int off, int dim) {
+        float s = 0;
+        for (int i = 0; i < dim; i++) s += q[i] * VectorCodec.fromHalf(rows[off + i]);
+        return s;
+    }
+
+    public static void signBits(float[] v, long[] dst, int off) {
+        int words = words(v.length);
+        for (int w = 0; w < words; w++) dst[off + w] = 0L;
+        for (int i = 0; i < v.length; i++) {
+            if (v[i] > 0) dst[off + (i >>> 6)] |= 1L << (i & 63);
+        }
+    }
+
+    public static int hamming(long[] q, long[] bits, int off, int words) {
+        int d = 0;
+        for (int w = 0; w < words; w++) d += Long.bitCount(q[w] ^ bits[off + w]);
+        return d;
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.parkinformatique.Service.rag;
+
+import java.util.*;
+import java.util.function.Function;
+
+/** Reciprocal rank fusion (Cormack et al.): score(d) = sum over rankings of 1 / (k + rank(d)). */
+public final class RankFusion {
+
+    private RankFusion() {}
+
+    /** Fuses rankings (best first) of items identified by {@code id}; returns the best {@code limit}. */
+    public static <T> List<T> rrf(List<List<T>> rankings, Function<T, Long> id, int k, int limit) {
+        Map<Long, T> items = new LinkedHashMap<>();
+        Map<Long, Double> scores = new HashMap<>();
+        for (List<T> ranking : rankings) {
+            for (int r = 0; r < ranking.size(); r++) {
+                T item = ranking.get(r);
+                Long key = id.apply(item);
+                items.putIfAbsent(key, item);
+                scores.merge(key, 1.0 / (k + r + 1), Double::sum);
+            }
+        }
+        return items.keySet().stream()
+                .sorted((a, b) -> Double.compare(scores.get(b), scores.get(a)))
+                .limit(Math.max(0, limit))
+                .map(items::get)
+                .toList();
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.parkinformatique.Service.rag;
+
+import java.util.List;
+
+/** HNSW recall@k against the exact scan, per efSearch value, with mean latencies. */
+public record RecallReport(
+        int chunks,
+        int samples,
+        int k,
+        int m,
+        int efConstruction,
+        List<Row> rows
+) {
+    public record Row(int efSearch, double recall, double exactMicros, double hnswMicros) {
+    }
+}
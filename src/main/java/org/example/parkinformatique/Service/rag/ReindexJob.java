@@ -0,0 +1,86 @@
+package org.example.parkinformatique.Service.rag;
+
+import org.example.parkinformatique.dto.ReindexJobStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Progress of one reindex run; written by the indexer thread, read by the status endpoint. */
+public class ReindexJob {
+
+    public enum State { PENDING, RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private final String id;
+    private volatile State state = State.PENDING;
+    private volatile boolean cancelRequested;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    private final AtomicInteger articlesTotal = new AtomicInteger();
+    private final AtomicInteger articlesDone = new AtomicInteger();
+    private final AtomicInteger articlesSkipped = new AtomicInteger();
+    private final AtomicInteger chunksEmbedded = new AtomicInteger();
+
+    public ReindexJob(String id) {
+        this.id = id;
+    }
+
+    public String getId() { return id; }
+
+    public State getState() { return state; }
+
+    public boolean isRunning() { return state == State.PENDING || state == State.RUNNING; }
+
+    public boolean isCancelled() { return cancelRequested; }
+
+    public int chunksEmbedded() { return chunksEmbedded.get(); }
+
+    /* ------------ indexer side ------------ */
+
+    public void start(int totalArticles) {
+        articlesTotal.set(totalArticles);
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    public void articleSkipped() {
+        articlesSkipped.incrementAndGet();
+        articlesDone.incrementAndGet();
+    }
+
+    public void batchCommitted(int articles, int chunks) {
+        articlesDone.addAndGet(articles);
+        chunksEmbedded.addAndGet(chunks);
+    }
+
+    public void finish() {
+        finishedAt = Instant.now();
+        state = cancelRequested ? State.CANCELLED : State.COMPLETED;
+    }
+
+    public void fail(Throwable t) {
+        finishedAt = Instant.now();
+        error = t.getMessage();
+        state = State.FAILED;
+    }
+
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    /* ------------ status ------------ */
+
+    public ReindexJobStatus snapshot() {
+        Instant start = startedAt;
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        double seconds = start == null ? 0 : Math.max(1, Duration.between(start, end).toMillis()) / 1000.0;
+        int total = articlesTotal.get();
+        int done = articlesDone.get();
+        double chunksPerSecond = seconds == 0 ? 0 : chunksEmbedded.get() / seconds;
+        Long eta = (!isRunning() || done == 0) ? null : Math.round((total - done) * (seconds / done));
+        return new ReindexJobStatus(id, state.name(), total, done, articlesSkipped.get(), chunksEmbedded.get(),
+                Math.round(chunksPerSecond * 10) / 10.0, eta, start, finishedAt, error);
+    }
+}
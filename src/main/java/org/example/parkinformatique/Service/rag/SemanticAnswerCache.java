@@ -0,0 +1,116 @@
+package org.example.parkinformatique.Service.rag;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Answers keyed by question embedding: a lookup returns the closest cached question if its
+ * cosine similarity reaches the threshold. Entries remember the KB articles their context
+ * came from and are dropped when one of them is reindexed; LRU + TTL eviction. The owner
+ * drops everything when an article is added. An edited article that now fits a question
+ * answered from other articles is only picked up once that entry expires (TTL).
+ * Lookup is a linear scan, fine for a few hundred entries.
+ */
+public class SemanticAnswerCache {
+
+    public record Hit(String answer, float similarity) {}
+
+    private record Entry(float[] question, String answer, Set<Long> articleIds, long expiresAt) {}
+
+    private final int maxSize;
+    private final float threshold;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<Long, Entry> entries;
+    private long nextId;
+    private long generation; // bumped on every invalidation
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public SemanticAnswerCache(int maxSize, double threshold, Duration ttl) {
+        this(maxSize, threshold, ttl, System::nanoTime);
+    }
+
+    public SemanticAnswerCache(int maxSize, double threshold, Duration ttl, LongSupplier clock) {
+        this.maxSize = Math.max(1, maxSize);
+        this.threshold = (float) threshold;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                boolean evict = size() > SemanticAnswerCache.this.maxSize;
+                if (evict) evictions.incrementAndGet();
+                return evict;
+            }
+        };
+    }
+
+    public synchronized Hit get(float[] question) {
+        float[] q = VectorMath.normalize(question);
+        long now = clock.getAsLong();
+        long bestId = -1;
+        float best = -2f;
+        for (Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Entry> me = it.next();
+            Entry e = me.getValue();
+            if (now - e.expiresAt() > 0) {
+                it.remove();
+                evictions.incrementAndGet();
+                continue;
+            }
+            if (e.question().length != q.length) continue;
+            float s = VectorMath.dot(q, e.question(), 0, q.length);
+            if (s > best) {
+                best = s;
+                bestId = me.getKey();
+            }
+        }
+        if (bestId < 0 || best < threshold) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new Hit(entries.get(bestId).answer(), best); // get() refreshes the LRU order
+    }
+
+    /** Stamp to pass to {@link #put}; read it before building the context. */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /** Ignored if an invalidation happened since {@code generation} was read. */
+    public synchronized void put(float[] question, String answer, Set<Long> articleIds, long generation) {
+        if (generation != this.generation || answer == null || answer.isBlank()) return;
+        entries.put(nextId++, new Entry(VectorMath.normalize(question), answer, Set.copyOf(articleIds),
+                clock.getAsLong() + ttlNanos));
+    }
+
+    /**
+     * Drops entries built from one of these articles, and entries built without KB context
+     * (a new article may now match them). {@code null} drops everything.
+     */
+    public synchronized void invalidate(Collection<Long> articleIds) {
+        generation++;
+        if (articleIds == null) {
+            entries.clear();
+            return;
+        }
+        entries.values().removeIf(e -> e.articleIds().isEmpty()
+                || e.articleIds().stream().anyMatch(articleIds::contains));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hits() { return hits.get(); }
+
+    public long misses() { return misses.get(); }
+
+    public long evictions() { return evictions.get(); }
+}
@@ -0,0 +1,169 @@
+package org.example.parkinformatique.Service.rag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Single-pass chunker for KB articles (plain text or light markdown). Text is appended to a
+ * buffer of at most maxChars; when it is full, the buffer is cut at the strongest boundary
+ * seen in its second half: heading &gt; blank line &gt; list item &gt; line &gt; sentence &gt; word,
+ * and only mid-word when there is none. A heading starts a new chunk once the current one
+ * holds a third of maxChars. Cuts inside a paragraph repeat the last overlapChars of the
+ * chunk (from a sentence or word start) at the head of the next one.
+ * <p>
+ * Memory is bounded by maxChars whatever the article length. Chunks are trimmed, never
+ * empty, and never longer than maxChars (overlap included).
+ */
+public final class TextChunker {
+
+    private static final int WORD = 0, SENTENCE = 1, LINE = 2, ITEM = 3, PARAGRAPH = 4, SECTION = 5;
+
+    private final int maxChars;
+    private final int overlapChars;
+
+    public TextChunker(int maxChars, int overlapChars) {
+        this.maxChars = Math.max(16, maxChars);
+        this.overlapChars = Math.max(0, Math.min(overlapChars, this.maxChars / 4));
+    }
+
+    public List<String> split(CharSequence text) {
+        List<String> out = new ArrayList<>();
+        Splitter s = start(out::add);
+        s.append(text);
+        s.finish();
+        return out;
+    }
+
+    /** Incremental form: append the article in pieces, chunks are handed out as they close. */
+    public Splitter start(Consumer<String> out) {
+        return new Splitter(out);
+    }
+
+    public final class Splitter {
+        private final Consumer<String> out;
+        private final StringBuilder cur = new StringBuilder(maxChars + 1);
+        private final int[] breaks = new int[SECTION + 1]; // last cut position per level, 0 = none
+        private int lineStart;
+        private boolean lineHasContent;
+        private boolean digitsOnly;  // line so far is "12" -> "12." / "12)" makes it a list item
+        private boolean refeeding;
+
+        private Splitter(Consumer<String> out) {
+            this.out = out;
+        }
+
+        public Splitter append(CharSequence text) {
+            if (text != null) {
+                for (int i = 0; i < text.length(); i++) feed(text.charAt(i));
+            }
+            return this;
+        }
+
+        public void finish() {
+            emit(cur.length(), false);
+        }
+
+        private void feed(char c) {
+            if (c == '\r') return;
+            if (cur.length() == 0 && Character.isWhitespace(c)) return;
+            cur.append(c);
+            int pos = cur.length();
+            if (c == '\n') {
+                breaks[lineHasContent ? LINE : PARAGRAPH] = pos;
+                lineStart = pos;
+                lineHasContent = false;
+                digitsOnly = false;
+            } else if (!lineHasContent) {
+                if (!Character.isWhitespace(c)) {
+                    lineHasContent = true;
+                    lineStarted(c);
+                }
+            } else if (digitsOnly) {
+                if (c == '.' || c == ')') breaks[ITEM] = lineStart;
+                digitsOnly = Character.isDigit(c);
+            }
+            if (c == ' ' || c == '\t') {
+                breaks[WORD] = pos;
+                char prev = pos >= 2 ? cur.charAt(pos - 2) : ' ';
+                if (prev == '.' || prev == '!' || prev == '?' || prev == ':' || prev == ';') breaks[SENTENCE] = pos;
+            }
+            if (cur.length() > maxChars && !refeeding) cut();
+        }
+
+        /** First visible character of a line: headings and list markers. */
+        private void lineStarted(char c) {
+            if (c == '#') {
+                breaks[SECTION] = lineStart;
+                if (lineStart >= maxChars / 3 && !refeeding) emit(lineStart, false);
+            } else if (c == '-' || c == '*' || c == '+' || c == '\u2022') {
+                breaks[ITEM] = lineStart;
+            } else {
+                digitsOnly = Character.isDigit(c);
+            }
+        }
+
+        private void cut() {
+            for (int l = SECTION; l >= WORD; l--) {
+                if (breaks[l] >= maxChars / 2) {
+                    emit(breaks[l], l < PARAGRAPH && overlapChars > 0);
+                    return;
+                }
+            }
+            // nothing in the second half: a very long word follows, keep it whole if possible
+            int at = 0;
+            for (int b : breaks) at = Math.max(at, b);
+            emit(at > 0 ? at : maxChars, false);
+        }
+
+        /** Hands out cur[0, at) and restarts from the rest, preceded by the overlap if any. */
+        private void emit(int at, boolean overlap) {
+            int end = at;
+            while (end > 0 && Character.isWhitespace(cur.charAt(end - 1))) end--;
+            String chunk = cur.substring(0, end);
+            int nl = cur.indexOf("\n", end);
+            String gap = at == end ? "" : nl >= 0 && nl < at ? "\n" : " ";
+            String rest = cur.substring(at);
+            if (!chunk.isEmpty()) out.accept(chunk);
+
+            String tail = overlap ? overlapTail(chunk, end / 2) : "";
+            boolean midLine = lineHasContent && at > lineStart;
+            cur.setLength(0);
+            Arrays.fill(breaks, 0);
+            lineStart = 0;
+            lineHasContent = midLine || !tail.isEmpty();
+            digitsOnly = false;
+            refeeding = true;
+            try {
+                if (!tail.isEmpty()) {
+                    feedAll(tail);
+                    feedAll(gap); // the cut's own whitespace (a line break stays one), or none mid-word
+                }
+                feedAll(rest);
+            } finally {
+                refeeding = false;
+            }
+            if (cur.length() > maxChars) cut();
+        }
+
+        private void feedAll(String s) {
+            for (int i = 0; i < s.length(); i++) feed(s.charAt(i));
+        }
+
+        /** Last overlapChars (at most limit) of the chunk, starting on a sentence, else a word. */
+        private String overlapTail(String chunk, int limit) {
+            int n = Math.min(overlapChars, limit);
+            if (n <= 0) return "";
+            int from = chunk.length() - n;
+            int word = -1;
+            for (int i = from; i < chunk.length(); i++) {
+                if (i == 0 || !Character.isWhitespace(chunk.charAt(i - 1)) || Character.isWhitespace(chunk.charAt(i))) continue;
+                char before = i >= 2 ? chunk.charAt(i - 2) : '.';
+                if (before == '.' || before == '!' || before == '?' || before == '\n') return chunk.substring(i);
+                if (word < 0) word = i;
+            }
+            return word < 0 ? "" : chunk.substring(word);
+        }
+    }
+}
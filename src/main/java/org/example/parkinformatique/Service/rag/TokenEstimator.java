@@ -0,0 +1,45 @@
+package org.example.parkinformatique.Service.rag;
+
+/**
+ * Cheap upper-leaning token count for BPE chat models (llama/qwen family) without their
+ * vocabulary: a Latin word costs ~1 token per 4 letters (its leading space included),
+ * digits go by groups of 3, other scripts (Arabic...) ~1 token per 2 letters, and each
+ * punctuation mark, symbol or line break costs 1. Errs high so a packed prompt fits.
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {}
+
+    public static int estimate(CharSequence text) {
+        if (text == null) return 0;
+        int tokens = 0;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char ch = text.charAt(i);
+            if (ch == ' ' || ch == '\t') {
+                i++; // merged into the next token
+            } else if (Character.isDigit(ch)) {
+                int start = i;
+                while (i < n && Character.isDigit(text.charAt(i))) i++;
+                tokens += (i - start + 2) / 3;
+            } else if (Character.isLetter(ch)) {
+                int start = i;
+                boolean latin = true;
+                while (i < n && Character.isLetter(text.charAt(i))) {
+                    if (text.charAt(i) > 0x24F) latin = false;
+                    i++;
+                }
+                int len = i - start;
+                tokens += latin ? (len + 3) / 4 : (len + 1) / 2;
+            } else if (ch == '\n' || ch == '\r') {
+                while (i < n && (text.charAt(i) == '\n' || text.charAt(i) == '\r')) i++;
+                tokens++;
+            } else {
+                i += Character.charCount(Character.codePointAt(text, i));
+                tokens += Character.isSurrogate(ch) ? 2 : 1; // emoji: several byte tokens
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.parkinformatique.Service.rag;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Top-k selection on a fixed-size binary min-heap of primitive (score, row) pairs:
+ * O(n log k), no allocation per candidate. The root is the weakest kept score, so most
+ * rows are rejected by a single comparison.
+ */
+public final class TopK {
+
+    /** Score of row i; must be safe to call from several threads for {@link #selectParallel}. */
+    @FunctionalInterface
+    public interface RowScorer {
+        float score(int row);
+    }
+
+    private static final int LEAF_ROWS = 8192;
+
+    private final float[] scores;
+    private final int[] rows;
+    private final int k;
+    private int size;
+
+    public TopK(int k) {
+        this.k = Math.max(0, k);
+        int cap = Math.max(1, k);
+        scores = new float[cap];
+        rows = new int[cap];
+    }
+
+    public static TopK select(int n, int k, RowScorer scorer) {
+        TopK top = new TopK(k);
+        for (int i = 0; i < n; i++) top.offer(scorer.score(i), i);
+        return top;
+    }
+
+    /** Splits [0, n) across the pool; each leaf fills its own heap, heaps are merged on join. */
+    public static TopK selectParallel(int n, int k, RowScorer scorer, ForkJoinPool pool) {
+        return pool.invoke(new Scan(0, n, k, scorer));
+    }
+
+    public void offer(float score, int row) {
+        if (size < k) {
+            int i = size++;
+            // sift up
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score) break;
+                scores[i] = scores[parent];
+                rows[i] = rows[parent];
+                i = parent;
+            }
+            scores[i] = score;
+            rows[i] = row;
+        } else if (size > 0 && score > scores[0]) {
+            siftDown(score, row);
+        }
+    }
+
+    public void merge(TopK other) {
+        for (int i = 0; i < other.size; i++) offer(other.scores[i], other.rows[i]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Empties the heap into rows / scores ordered best first (heap sort); returns the count.
+     * The heap is unusable afterwards.
+     */
+    public int drainDescending(int[] outRows, float[] outScores) {
+        int n = size;
+        while (size > 0) {
+            int last = --size;
+            outRows[last] = rows[0];
+            outScores[last] = scores[0];
+            if (last > 0) siftDown(scores[last], rows[last]);
+        }
+        return n;
+    }
+
+    private void siftDown(float score, int row) {
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && scores[right] < scores[child]) child = right;
+            if (score <= scores[child]) break;
+            scores[i] = scores[child];
+            rows[i] = rows[child];
+            i = child;
+        }
+        scores[i] = score;
+        rows[i] = row;
+    }
+
+    private static final class Scan extends RecursiveTask<TopK> {
+        private final int from, to, k;
+        private final RowScorer scorer;
+
+        Scan(int from, int to, int k, RowScorer scorer) {
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.scorer = scorer;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= LEAF_ROWS) {
+                TopK top = new TopK(k);
+                for (int i = from; i < to; i++) top.offer(scorer.score(i), i);
+                return top;
+            }
+            int mid = (from + to) >>> 1;
+            Scan left = new Scan(from, mid, k, scorer);
+            left.fork();
+            TopK right = new Scan(mid, to, k, scorer).compute();
+            TopK top = left.join();
+            top.merge(right);
+            return top;
+        }
+    }
+}
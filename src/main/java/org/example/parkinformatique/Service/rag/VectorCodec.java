@@ -0,0 +1,125 @@
+package org.example.parkinformatique.Service.rag;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HexFormat;
+
+/**
+ * Binary layout of kb_embedding.embedding_bin (little-endian):
+ * <pre>
+ *  0  4  magic "KBV1"
+ *  4  1  dtype: 0 = float32, 1 = float16
+ *  5  3  reserved
+ *  8  4  dim
+ * 12  4  model hash (first 4 bytes of SHA-256(model name), 0 = unknown)
+ * 16  .  dim * 4 (float32) or dim * 2 (float16) bytes
+ * </pre>
+ * 768 dims: 3 088 bytes in float32, 1 552 in float16, against ~8 KB of JSON text.
+ * Dim and model can be checked from the header without decoding the payload.
+ */
+public final class VectorCodec {
+
+    public enum Dtype { FLOAT32, FLOAT16 }
+
+    public static final int HEADER_BYTES = 16;
+    // far above any embedding model (pgvector itself stops at 16 000): a larger dim is a corrupt header
+    public static final int MAX_DIM = 1 << 16;
+    private static final int MAGIC = 0x3156424B; // "KBV1" read as little-endian int
+
+    private VectorCodec() {}
+
+    public static Dtype dtype(String value) {
+        return value != null && value.trim().equalsIgnoreCase("float16") ? Dtype.FLOAT16 : Dtype.FLOAT32;
+    }
+
+    public static int modelHash(String model) {
+        if (model == null || model.isBlank()) return 0;
+        return ByteBuffer.wrap(HexFormat.of().parseHex(ContentHash.sha256(model).substring(0, 8)))
+                .order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    public static byte[] encode(float[] v, Dtype dtype, int modelHash) {
+        int width = dtype == Dtype.FLOAT16 ? 2 : 4;
+        ByteBuffer b = ByteBuffer.allocate(HEADER_BYTES + v.length * width).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(MAGIC).put((byte) dtype.ordinal()).put((byte) 0).putShort((short) 0)
+                .putInt(v.length).putInt(modelHash);
+        if (dtype == Dtype.FLOAT16) {
+            for (float x : v) b.putShort(toHalf(x));
+        } else {
+            b.asFloatBuffer().put(v);
+        }
+        return b.array();
+    }
+
+    /** Header is well formed and the payload length matches dim and dtype. */
+    public static boolean isValid(byte[] data) {
+        if (data == null || data.length < HEADER_BYTES) return false;
+        ByteBuffer b = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        if (b.getInt(0) != MAGIC) return false;
+        int dtype = data[4];
+        if (dtype != 0 && dtype != 1) return false;
+        int dim = b.getInt(8);
+        if (dim < 0 || dim > MAX_DIM) return false;
+        return data.length == HEADER_BYTES + (long) dim * (dtype == 1 ? 2 : 4);
+    }
+
+    public static int dim(byte[] data) {
+        return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).getInt(8);
+    }
+
+    public static int modelHashOf(byte[] data) {
+        return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).getInt(12);
+    }
+
+    public static float[] decode(byte[] data) {
+        if (!isValid(data)) return null;
+        ByteBuffer b = ByteBuffer.wrap(data, HEADER_BYTES, data.length - HEADER_BYTES)
+                .slice().order(ByteOrder.LITTLE_ENDIAN);
+        float[] out = new float[dim(data)];
+        if (data[4] == 1) {
+            for (int i = 0; i < out.length; i++) out[i] = fromHalf(b.getShort());
+        } else {
+            b.asFloatBuffer().get(out);
+        }
+        return out;
+    }
+
+    /* IEEE 754 binary16, round to nearest even (Float.floatToFloat16 is Java 20+). */
+
+    static short toHalf(float f) {
+        int bits = Float.floatToRawIntBits(f);
+        int sign = (bits >>> 16) & 0x8000;
+        int exp = (bits >>> 23) & 0xFF;
+        int mant = bits & 0x7FFFFF;
+        if (exp == 0xFF) return (short) (sign | 0x7C00 | (mant != 0 ? 0x200 : 0)); // inf / NaN
+        int e = exp - 127 + 15;
+        if (e >= 0x1F) return (short) (sign | 0x7C00);                             // overflow -> inf
+        if (e <= 0) {                                                               // subnormal or zero
+            if (e < -10) return (short) sign;
+            mant |= 0x800000;
+            int shift = 14 - e;
+            int half = mant >>> shift;
+            int rest = mant & ((1 << shift) - 1);
+            int mid = 1 << (shift - 1);
+            if (rest > mid || (rest == mid && (half & 1) != 0)) half++;
+            return (short) (sign | half);
+        }
+        int half = (e << 10) | (mant >>> 13);
+        int rest = mant & 0x1FFF;
+        if (rest > 0x1000 || (rest == 0x1000 && (half & 1) != 0)) half++; // may carry into exp: still correct
+        return (short) (sign | half);
+    }
+
+    static float fromHalf(short h) {
+        int sign = (h & 0x8000) << 16;
+        int exp = (h >>> 10) & 0x1F;
+        int mant = h & 0x3FF;
+        if (exp == 0x1F) return Float.intBitsToFloat(sign | 0x7F800000 | (mant << 13));
+        if (exp == 0) {
+            if (mant == 0) return Float.intBitsToFloat(sign);
+            float v = mant / 1024f / 16384f; // 2^-14 * mant/2^10
+            return sign != 0 ? -v : v;
+        }
+        return Float.intBitsToFloat(sign | ((exp - 15 + 127) << 23) | (mant << 13));
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.parkinformatique.Service.rag;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * float[] helpers for retrieval. {@link #dot} runs on the JDK Vector API when the
+ * jdk.incubator.vector module is resolved (--add-modules, set up in build.gradle),
+ * otherwise on an unrolled scalar loop. -Drag.simd=false forces the scalar path.
+ * SimdDot is compiled on its own (src/simd/java) so that only it needs the module.
+ */
+public final class VectorMath {
+
+    private static final boolean SIMD = simdAvailable();
+
+    private VectorMath() {}
+
+    private static boolean simdAvailable() {
+        if ("false".equalsIgnoreCase(System.getProperty("rag.simd"))) return false;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return false;
+        try {
+            return SimdDot.usable();
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    public static boolean simd() {
+        return SIMD;
+    }
+
+    public static float[] toFloats(List<Double> v) {
+        float[] out = new float[v.size()];
+        for (int i = 0; i < out.length; i++) out[i] = v.get(i).floatValue();
+        return out;
+    }
+
+    /** Reads a JSON array node ([0.1, 0.2, ...]) straight into a float[], without boxing. */
+    public static float[] fromJson(JsonNode arr) {
+        if (arr == null || !arr.isArray()) return null;
+        float[] out = new float[arr.size()];
+        for (int i = 0; i < out.length; i++) out[i] = (float) arr.get(i).asDouble();
+        return out;
+    }
+
+    /** pgvector text literal: [0.1,0.2,...] */
+    public static String toPgVector(float[] v) {
+        StringBuilder sb = new StringBuilder(v.length * 12).append('[');
+        for (int i = 0; i < v.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(v[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    public static float norm(float[] v) {
+        return norm(v, 0, v.length);
+    }
+
+    public static float norm(float[] data, int offset, int dim) {
+        double s = 0;
+        for (int i = 0; i < dim; i++) {
+            float x = data[offset + i];
+            s += x * x;
+        }
+        return (float) Math.sqrt(s);
+    }
+
+    /** Unit-length copy of v (all zeros if v is zero). */
+    public static float[] normalize(float[] v) {
+        float n = norm(v);
+        float[] out = new float[v.length];
+        if (n == 0) return out;
+        float inv = 1f / n;
+        for (int i = 0; i < v.length; i++) out[i] = v[i] * inv;
+        return out;
+    }
+
+    /** Dot product of q with the row stored at data[offset .. offset+dim). */
+    public static float dot(float[] q, float[] data, int offset, int dim) {
+        return SIMD ? SimdDot.dot(q, data, offset, dim) : dotScalar(q, data, offset, dim);
+    }
+
+    /** Scalar fallback, unrolled by 4 with independent accumulators. */
+    static float dotScalar(float[] q, float[] data, int offset, int dim) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int bound = dim - 3; i < bound; i += 4) {
+            int j = offset + i;
+            s0 += q[i] * data[j];
+            s1 += q[i + 1] * data[j + 1];
+            s2 += q[i + 2] * data[j + 2];
+            s3 += q[i + 3] * data[j + 3];
+        }
+        for (; i < dim; i++) s0 += q[i] * data[offset + i];
+        return (s0 + s1) + (s2 + s3);
+    }
+}
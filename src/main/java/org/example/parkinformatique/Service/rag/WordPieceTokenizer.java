@@ -0,0 +1,161 @@
+package org.example.parkinformatique.Service.rag;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * BERT WordPiece tokenizer (vocab.txt, one token per line, id = line number), as used by
+ * nomic-embed-text and the other BERT-family embedding models: clean up, optional lower
+ * case + accent stripping, split on whitespace and punctuation, then greedy longest-match
+ * sub-words ("##" continuations). Output is [CLS] ... [SEP], truncated to maxTokens.
+ * Immutable and thread-safe.
+ */
+public final class WordPieceTokenizer {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{Mn}+");
+    private static final int MAX_WORD_CHARS = 100;
+
+    private final Map<String, Integer> vocab;
+    private final boolean lowerCase;
+    private final int cls, sep, unk;
+
+    public WordPieceTokenizer(Map<String, Integer> vocab, boolean lowerCase) {
+        this.vocab = vocab;
+        this.lowerCase = lowerCase;
+        this.cls = id(vocab, "[CLS]");
+        this.sep = id(vocab, "[SEP]");
+        this.unk = id(vocab, "[UNK]");
+    }
+
+    public static WordPieceTokenizer load(Path vocabTxt, boolean lowerCase) throws IOException {
+        Map<String, Integer> vocab = new HashMap<>(40_000);
+        try (BufferedReader r = Files.newBufferedReader(vocabTxt, StandardCharsets.UTF_8)) {
+            String line;
+            int id = 0;
+            while ((line = r.readLine()) != null) vocab.putIfAbsent(line.strip(), id++);
+        }
+        return new WordPieceTokenizer(vocab, lowerCase);
+    }
+
+    private static int id(Map<String, Integer> vocab, String special) {
+        Integer id = vocab.get(special);
+        if (id == null) throw new IllegalArgumentException("vocab has no " + special);
+        return id;
+    }
+
+    /** Token ids including [CLS] and [SEP]; at most maxTokens (&gt;= 2). */
+    public int[] encode(String text, int maxTokens) {
+        int[] ids = new int[Math.max(2, Math.min(maxTokens, 64))];
+        int n = 0;
+        ids[n++] = cls;
+        int limit = Math.max(2, maxTokens) - 1; // room for [SEP]
+        String s = prepare(text);
+        int i = 0;
+        while (i < s.length() && n < limit) {
+            int cp = s.codePointAt(i);
+            int len = Character.charCount(cp);
+            if (isSpace(cp)) {
+                i += len;
+                continue;
+            }
+            int end;
+            if (isPunctuation(cp) || isCjk(cp)) {
+                end = i + len; // a token on its own
+            } else {
+                end = i + len;
+                while (end < s.length()) {
+                    int c = s.codePointAt(end);
+                    if (isSpace(c) || isPunctuation(c) || isCjk(c)) break;
+                    end += Character.charCount(c);
+                }
+            }
+            ids = ensure(ids, n + (end - i) + 1); // at most one piece per char
+            n = wordPiece(s, i, end, ids, n, limit);
+            i = end;
+        }
+        ids = ensure(ids, n + 1);
+        ids[n++] = sep;
+        return Arrays.copyOf(ids, n);
+    }
+
+    /** Greedy longest-match-first split of s[from, to) into vocab pieces. */
+    private int wordPiece(String s, int from, int to, int[] out, int n, int limit) {
+        if (to - from > MAX_WORD_CHARS) {
+            out[n++] = unk;
+            return n;
+        }
+        int start = n;
+        int pos = from;
+        while (pos < to) {
+            int end = to;
+            Integer match = null;
+            while (end > pos) {
+                String piece = pos == from ? s.substring(pos, end) : "##" + s.substring(pos, end);
+                match = vocab.get(piece);
+                if (match != null) break;
+                end = s.offsetByCodePoints(end, -1);
+            }
+            if (match == null) {
+                n = start; // the whole word is unknown
+                out[n++] = unk;
+                return n;
+            }
+            if (n >= limit) return n;
+            out[n++] = match;
+            pos = end;
+        }
+        return n;
+    }
+
+    private String prepare(String text) {
+        if (text == null) return "";
+        StringBuilder b = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == 0 || c == 0xFFFD) continue;
+            boolean control = Character.isISOControl(c) || Character.getType(c) == Character.FORMAT;
+            if (control && c != '\t' && c != '\n' && c != '\r') continue;
+            b.append(c);
+        }
+        String s = b.toString();
+        if (lowerCase) {
+            s = s.toLowerCase(Locale.ROOT);
+            s = MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+        }
+        return s;
+    }
+
+    private static boolean isSpace(int cp) {
+        return Character.isWhitespace(cp) || Character.getType(cp) == Character.SPACE_SEPARATOR;
+    }
+
+    private static int[] ensure(int[] a, int size) {
+        return size <= a.length ? a : Arrays.copyOf(a, Math.max(size, a.length * 2));
+    }
+
+    /** ASCII symbols count as punctuation for BERT, plus the Unicode P* categories. */
+    private static boolean isPunctuation(int cp) {
+        if ((cp >= 33 && cp <= 47) || (cp >= 58 && cp <= 64) || (cp >= 91 && cp <= 96) || (cp >= 123 && cp <= 126)) {
+            return true;
+        }
+        int t = Character.getType(cp);
+        return t == Character.CONNECTOR_PUNCTUATION || t == Character.DASH_PUNCTUATION
+                || t == Character.START_PUNCTUATION || t == Character.END_PUNCTUATION
+                || t == Character.INITIAL_QUOTE_PUNCTUATION || t == Character.FINAL_QUOTE_PUNCTUATION
+                || t == Character.OTHER_PUNCTUATION;
+    }
+
+    private static boolean isCjk(int cp) {
+        return (cp >= 0x4E00 && cp <= 0x9FFF) || (cp >= 0x3400 && cp <= 0x4DBF) || (cp >= 0x20000 && cp <= 0x2A6DF)
+                || (cp >= 0x2A700 && cp <= 0x2CEAF) || (cp >= 0xF900 && cp <= 0xFAFF) || (cp >= 0x2F800 && cp <= 0x2FA1F);
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.parkinformatique.config;
+
+import io.netty.channel.ChannelOption;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * WebClient factory over the shared {@link ModelHttpConfig#modelConnectionProvider()}.
+ * Builders come from Spring Boot's, so codecs and http.client.requests observations apply.
+ */
+@Component
+@RequiredArgsConstructor
+public class ModelHttpClients {
+
+    private final ConnectionProvider provider;
+    private final WebClient.Builder webClientBuilder;
+
+    @Value("${rag.http.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    // max silence between two reads of a response (not the whole response: streams last minutes)
+    @Value("${rag.http.read-timeout:2m}")
+    private Duration readTimeout;
+
+    // HTTP/2 where the backend offers it (ALPN on https, h2c upgrade on http); off for Ollama
+    @Value("${rag.http.h2:false}")
+    private boolean h2;
+
+    public HttpClient httpClient(String baseUrl) {
+        HttpClient client = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(readTimeout)
+                .metrics(true, Function.identity()); // uri tag: fixed API paths only
+        if (h2) {
+            boolean tls = baseUrl != null && baseUrl.startsWith("https");
+            client = client.protocol(tls ? HttpProtocol.H2 : HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        return client;
+    }
+
+    /** Pre-configured builder; callers may still add codecs before build(). */
+    public WebClient.Builder webClient(String baseUrl) {
+        return webClientBuilder.clone()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient(baseUrl)));
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.parkinformatique.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * One Reactor Netty connection pool for all model traffic (Ollama, OpenAI). Pools are kept
+ * per remote address inside the provider, so each backend gets max-connections of its own.
+ * Metrics: reactor.netty.connection.provider.* (pool, per remote address) and
+ * http.client.requests (latency, client.name = backend host).
+ */
+@Configuration
+public class ModelHttpConfig {
+
+    @Value("${rag.http.max-connections:32}")
+    private int maxConnections;
+
+    // requests waiting for a free connection beyond this fail instead of queuing forever
+    @Value("${rag.http.pending-acquire-timeout:30s}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${rag.http.max-idle-time:60s}")
+    private Duration maxIdleTime;
+
+    @Value("${rag.http.max-life-time:10m}")
+    private Duration maxLifeTime;
+
+    @Value("${rag.http.evict-interval:30s}")
+    private Duration evictInterval;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider modelConnectionProvider() {
+        return ConnectionProvider.builder("model-backends")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInterval)
+                .lifo() // the most recently used connection is the least likely to be closed by the server
+                .metrics(true)
+                .build();
+    }
+}
@@ -2,12 +2,20 @@ package org.example.parkinformatique.controllers;
 
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
-import org.example.parkinformatique.Service.ChatbotIndexerService;
+import org.example.parkinformatique.Service.LlmAdmission;
 import org.example.parkinformatique.Service.RagChatService;
+import org.example.parkinformatique.Service.ReindexJobService;
+import org.example.parkinformatique.Service.rag.ReindexJob;
+import org.example.parkinformatique.dto.ReindexJobStatus;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.Map;
@@ -19,37 +27,45 @@ import java.util.Map;
 public class ChatbotController {
 
     private final RagChatService rag;
-    private final ChatbotIndexerService indexer;
+    private final ReindexJobService reindexJobs;
 
 
+    // async: the Tomcat worker is released while the model generates
     @PostMapping
-    public ResponseEntity<?> chat(@RequestBody ChatReq req) {
-        try {
-            String ans = rag.answer(req.getMessage());
-            return ResponseEntity.ok(Map.of("answer", ans));
-        } catch (Exception e) {
-            return ResponseEntity.status(500)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(Map.of("error", true, "message", e.getMessage()));
-        }
+    public Mono<ResponseEntity<Map<String, Object>>> chat(@RequestBody ChatReq req) {
+        return rag.answer(req.getMessage())
+                .map(ans -> ResponseEntity.ok(Map.<String, Object>of("answer", ans)))
+                .onErrorResume(e -> Mono.just(LlmAdmission.isOverloaded(e)
+                        ? ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "10")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .body(Map.of("error", true, "message", String.valueOf(((ResponseStatusException) e).getReason())))
+                        : ResponseEntity.status(500)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .body(Map.of("error", true, "message", String.valueOf(e.getMessage())))));
     }
 
 
+    // unnamed events = tokens, "queue" events = position while waiting for a generation slot
     @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<String> chatStream(@RequestBody ChatReq req) {
+    public Flux<ServerSentEvent<String>> chatStream(@RequestBody ChatReq req) {
         return rag.answerStream(req.getMessage()).timeout(Duration.ofMinutes(5));
     }
 
+    // Starts (or returns the running) background reindex job
     @PostMapping("/reindex")
-    public ResponseEntity<?> reindex() {
-        try {
-            int n = indexer.reindexAll();
-            return ResponseEntity.ok(Map.of("success", true, "indexed", n));
-        } catch (Exception e) {
-            return ResponseEntity.status(500)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(Map.of("success", false, "message", e.getMessage()));
-        }
+    public ResponseEntity<ReindexJobStatus> reindex() {
+        return ResponseEntity.accepted().body(reindexJobs.start().snapshot());
+    }
+
+    @GetMapping("/reindex/{jobId}")
+    public ResponseEntity<ReindexJobStatus> reindexStatus(@PathVariable String jobId) {
+        return ResponseEntity.of(reindexJobs.get(jobId).map(ReindexJob::snapshot));
+    }
+
+    @DeleteMapping("/reindex/{jobId}")
+    public ResponseEntity<ReindexJobStatus> cancelReindex(@PathVariable String jobId) {
+        return ResponseEntity.of(reindexJobs.cancel(jobId).map(ReindexJob::snapshot));
     }
 
     @Data
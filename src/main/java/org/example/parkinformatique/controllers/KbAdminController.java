@@ -2,7 +2,11 @@ package org.example.parkinformatique.controllers;
 
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
-import org.example.parkinformatique.Service.ChatbotIndexerService;
+import org.example.parkinformatique.Service.KbVectorIndex;
+import org.example.parkinformatique.Service.ReindexJobService;
+import org.example.parkinformatique.Service.rag.ReindexJob;
+import org.example.parkinformatique.Service.rag.RecallReport;
+import org.example.parkinformatique.dto.ReindexJobStatus;
 import org.example.parkinformatique.entities.BaseConnaissance;
 import org.example.parkinformatique.entities.Utilisateur;
 import org.example.parkinformatique.repositories.BaseConnaissanceRepository;
@@ -21,20 +25,52 @@ import java.util.List;
 @RequiredArgsConstructor
 public class KbAdminController {
 
-    private final ChatbotIndexerService indexer;
+    private final KbVectorIndex vectorIndex;
+    private final ReindexJobService reindexJobs;
     private final BaseConnaissanceRepository kbRepo;
     private final UtilisateurRepository userRepo;
 
+    // POST /api/knowledge-base/reindex - starts a background job (202 + job id)
     @PostMapping("/reindex")
-    public ResponseEntity<?> reindex() {
+    public ResponseEntity<ReindexJobStatus> reindex() {
+        return ResponseEntity.accepted().body(reindexJobs.start().snapshot());
+    }
+
+    // GET /api/knowledge-base/reindex/{jobId} - progress, throughput, ETA
+    @GetMapping("/reindex/{jobId}")
+    public ResponseEntity<ReindexJobStatus> reindexStatus(@PathVariable String jobId) {
+        return ResponseEntity.of(reindexJobs.get(jobId).map(ReindexJob::snapshot));
+    }
+
+    // DELETE /api/knowledge-base/reindex/{jobId} - stops after the current batch
+    @DeleteMapping("/reindex/{jobId}")
+    public ResponseEntity<ReindexJobStatus> cancelReindex(@PathVariable String jobId) {
+        return ResponseEntity.of(reindexJobs.cancel(jobId).map(ReindexJob::snapshot));
+    }
+
+    // POST /api/knowledge-base/{id}/reindex - re-embed only the chunks of this article that changed
+    @PostMapping("/{id}/reindex")
+    public ResponseEntity<?> reindexArticle(@PathVariable Long id) {
         try {
-            int n = indexer.reindexAll();
-            return ResponseEntity.ok("Reindex terminé. Indexed chunks: " + n);
+            int n = reindexJobs.reindexArticle(id);
+            return ResponseEntity.ok("Reindex article " + id + " terminé. Embedded chunks: " + n);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(404).body(e.getMessage());
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Erreur reindex: " + e.getMessage());
         }
     }
 
+    // GET /api/knowledge-base/index/recall?samples=200&k=3&ef=16,32,64,128 - HNSW recall vs exact (ADMIN, one at a time)
+    @GetMapping("/index/recall")
+    public RecallReport recall(@RequestParam(defaultValue = "200") int samples,
+                               @RequestParam(defaultValue = "3") int k,
+                               @RequestParam(defaultValue = "16,32,64,128") List<Integer> ef) {
+        return vectorIndex.recallReport(Math.max(1, samples), Math.max(1, k), ef);
+    }
+
     @PostMapping("/seed")
     public ResponseEntity<?> seed(@RequestBody List<ArticleReq> reqs) {
         List<Long> ids = new ArrayList<>();
@@ -0,0 +1,18 @@
+package org.example.parkinformatique.dto;
+
+import java.time.Instant;
+
+public record ReindexJobStatus(
+        String id,
+        String state,
+        int articlesTotal,
+        int articlesDone,
+        int articlesSkipped,
+        int chunksEmbedded,
+        double chunksPerSecond,
+        Long etaSeconds,
+        Instant startedAt,
+        Instant finishedAt,
+        String error
+) {
+}
@@ -0,0 +1,37 @@
+package org.example.parkinformatique.entities;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.example.parkinformatique.Service.provider.EmbeddingProvider;
+import org.example.parkinformatique.Service.rag.VectorCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+/**
+ * float[] <-> bytea (see {@link VectorCodec}). Instantiated through Spring's bean container,
+ * hence the injected settings. A vector written by another embedding model reads back as
+ * null, exactly like a missing one: the index skips it and the next reindex re-embeds it.
+ */
+@Converter
+public class FloatVectorConverter implements AttributeConverter<float[], byte[]> {
+
+    @Autowired
+    private EmbeddingProvider embeddings;
+
+    @Value("${rag.rag.vector-dtype:float32}")
+    private String dtype;
+
+    @Override
+    public byte[] convertToDatabaseColumn(float[] v) {
+        return v == null ? null : VectorCodec.encode(v, VectorCodec.dtype(dtype), VectorCodec.modelHash(embeddings.model()));
+    }
+
+    @Override
+    public float[] convertToEntityAttribute(byte[] data) {
+        if (!VectorCodec.isValid(data)) return null;
+        int stored = VectorCodec.modelHashOf(data);
+        int expected = VectorCodec.modelHash(embeddings.model());
+        if (stored != 0 && expected != 0 && stored != expected) return null;
+        return VectorCodec.decode(data);
+    }
+}
@@ -25,14 +25,31 @@ public class KbEmbedding {
     @Column(name = "content", columnDefinition = "TEXT")
     private String chunkText;
 
-    // 👇 هادي المهمّة: JsonNode + JSONB
+    // legacy JSONB vector, no longer written: read once by KbVectorBackfill
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "embedding_json", columnDefinition = "jsonb")
     private JsonNode embeddingJson;
 
+    // little-endian float32/float16 with a dim/model header (db/003_kb_embedding_bytea.sql)
+    @Convert(converter = FloatVectorConverter.class)
+    @Column(name = "embedding_bin", columnDefinition = "bytea")
+    private float[] vector;
+
     @Column(name = "chunk_index")
     private Integer chunkIndex;
 
+    // estimated prompt tokens of chunkText (TokenEstimator), used to pack the chat context
+    @Column(name = "token_count")
+    private Integer tokenCount;
+
+    // SHA-256(model, chunk text): unchanged chunks keep their vector on reindex
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // SHA-256(model, chunking, titre, contenu): unchanged articles are skipped
+    @Column(name = "article_hash", length = 64)
+    private String articleHash;
+
     @Transient
     private java.util.List<Double> embedding;
 }
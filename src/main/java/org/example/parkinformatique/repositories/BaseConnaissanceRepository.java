@@ -26,4 +26,8 @@ public interface BaseConnaissanceRepository extends JpaRepository<BaseConnaissan
 
     @Query("SELECT COUNT(bc) FROM BaseConnaissance bc WHERE bc.actif = true")
     Long countActiveArticles();
+
+    // Reindex: ids first, articles loaded page by page
+    @Query("SELECT bc.id FROM BaseConnaissance bc ORDER BY bc.id")
+    List<Long> findAllIds();
 }
@@ -2,10 +2,75 @@ package org.example.parkinformatique.repositories;
 
 import org.example.parkinformatique.entities.KbEmbedding;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface KbEmbeddingRepository extends JpaRepository<KbEmbedding, Long> {
     List<KbEmbedding> findByArticle_Id(Long articleId);
     void deleteByArticle_Id(Long articleId);
+
+    interface ArticleHashView {
+        Long getArticleId();
+        String getArticleHash();
+    }
+
+    @Query("SELECT DISTINCT e.article.id AS articleId, e.articleHash AS articleHash FROM KbEmbedding e")
+    List<ArticleHashView> findArticleHashes();
+
+    interface ChunkTextView {
+        Long getId();
+        Long getArticleId();
+        Integer getChunkIndex();
+        String getChunkText();
+        Integer getTokenCount();
+    }
+
+    // KbTextIndex load: text only, vectors are not read
+    @Query("SELECT e.id AS id, e.article.id AS articleId, e.chunkIndex AS chunkIndex, e.chunkText AS chunkText, e.tokenCount AS tokenCount FROM KbEmbedding e")
+    List<ChunkTextView> findChunkTexts();
+
+    // rows still to convert by KbVectorBackfill
+    @Query("SELECT e.id FROM KbEmbedding e WHERE e.vector IS NULL AND e.embeddingJson IS NOT NULL")
+    List<Long> findIdsWithJsonOnly();
+
+    // pgvector (db/001_kb_embedding_pgvector.sql): ranking done by PostgreSQL, only top-k rows returned
+    @Query(value = """
+      SELECT * FROM kb_embedding
+      WHERE embedding IS NOT NULL
+      ORDER BY embedding <=> CAST(:q AS vector)
+      LIMIT :k
+    """, nativeQuery = true)
+    List<KbEmbedding> findNearest(@Param("q") String q, @Param("k") int k);
+
+    // pgvector rows whose vector column is still empty: written before db/001 was applied,
+    // or converted to embedding_bin by KbVectorBackfill before 001 could copy embedding_json
+    @Query(value = "SELECT id FROM kb_embedding WHERE embedding IS NULL AND embedding_bin IS NOT NULL", nativeQuery = true)
+    List<Long> findIdsMissingPgVector();
+
+    // declared dimension of the pgvector column (vector(768) -> 768)
+    @Query(value = """
+      SELECT atttypmod FROM pg_attribute
+      WHERE attrelid = 'kb_embedding'::regclass AND attname = 'embedding'
+    """, nativeQuery = true)
+    Integer findPgVectorDimension();
+
+    @Modifying
+    @Query(value = "UPDATE kb_embedding SET embedding = CAST(:v AS vector) WHERE id = :id", nativeQuery = true)
+    int updatePgVector(@Param("id") Long id, @Param("v") String v);
+
+    // pgvector mode: the row and its vector column in one statement, no follow-up UPDATE
+    @Query(value = """
+      INSERT INTO kb_embedding (article_id, content, embedding_bin, chunk_index, token_count,
+                                content_hash, article_hash, embedding)
+      VALUES (:articleId, :content, :bin, :chunkIndex, :tokenCount,
+              :contentHash, :articleHash, CAST(:v AS vector))
+      RETURNING id
+    """, nativeQuery = true)
+    Long insertWithVector(@Param("articleId") Long articleId, @Param("content") String content,
+                          @Param("bin") byte[] bin, @Param("chunkIndex") Integer chunkIndex,
+                          @Param("tokenCount") Integer tokenCount, @Param("contentHash") String contentHash,
+                          @Param("articleHash") String articleHash, @Param("v") String v);
 }
@@ -46,15 +46,26 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
-                        .dispatcherTypeMatchers(DispatcherType.ERROR, DispatcherType.FORWARD).permitAll()
+                        // ASYNC: Mono/Flux results of requests already authorized on the first dispatch
+                        .dispatcherTypeMatchers(DispatcherType.ERROR, DispatcherType.FORWARD, DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/error").permitAll()
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
 
+                        // Probes (liveness / readiness incl. Ollama warm-up)
+                        .requestMatchers(HttpMethod.GET, "/actuator/health", "/actuator/health/**").permitAll()
+
                         // Auth
                         .requestMatchers("/api/auth/**").permitAll()
 
-                        // KB
-                        .requestMatchers(HttpMethod.POST, "/api/knowledge-base/seed", "/api/knowledge-base/reindex").permitAll()
+                        // Reindex jobs: same rules under every prefix that exposes them (KB admin and chatbot)
+                        .requestMatchers(HttpMethod.POST, "/api/knowledge-base/reindex", "/api/knowledge-base/*/reindex",
+                                "/api/chatbot/reindex", "/api/utilisateur/chatbot/reindex").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.DELETE, "/api/knowledge-base/reindex/**",
+                                "/api/chatbot/reindex/**", "/api/utilisateur/chatbot/reindex/**").hasRole("ADMIN")
+
+                        // KB (index diagnostics scan the whole corpus)
+                        .requestMatchers("/api/knowledge-base/index/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/knowledge-base/seed").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/knowledge-base/**").permitAll()
 
                         // Chatbot
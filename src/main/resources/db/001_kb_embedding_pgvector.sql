@@ -0,0 +1,23 @@
+-- Optional pgvector storage for kb_embedding (rag.rag.search-mode=pgvector).
+-- Run once against deskhub_db; embedding_json stays the fallback path.
+CREATE EXTENSION IF NOT EXISTS vector;
+
+-- nomic-embed-text = 768 dims; change if rag.ollama.embedding-model changes
+ALTER TABLE kb_embedding ADD COLUMN IF NOT EXISTS embedding vector(768);
+
+-- Backfill from the JSONB column ("[0.1, 0.2, ...]" is valid vector input). Rows already
+-- converted to embedding_bin (db/003, embedding_json cleared) are not covered here: with
+-- rag.rag.search-mode=pgvector, KbVectorBackfill fills their vector column at startup.
+UPDATE kb_embedding
+SET embedding = embedding_json::text::vector
+WHERE embedding IS NULL
+  AND embedding_json IS NOT NULL
+  AND jsonb_array_length(embedding_json) = 768;
+
+CREATE INDEX IF NOT EXISTS kb_embedding_embedding_hnsw
+    ON kb_embedding USING hnsw (embedding vector_cosine_ops)
+    WITH (m = 16, ef_construction = 200);
+
+-- Alternative for very large tables (build after the backfill):
+-- CREATE INDEX kb_embedding_embedding_ivf
+--     ON kb_embedding USING ivfflat (embedding vector_cosine_ops) WITH (lists = 100);
@@ -0,0 +1,6 @@
+-- Incremental reindex: per-chunk and per-article content hashes (SHA-256 hex).
+-- Rows without hashes are re-embedded once by the next reindex.
+ALTER TABLE kb_embedding ADD COLUMN IF NOT EXISTS content_hash varchar(64);
+ALTER TABLE kb_embedding ADD COLUMN IF NOT EXISTS article_hash varchar(64);
+
+CREATE INDEX IF NOT EXISTS kb_embedding_article_id_idx ON kb_embedding (article_id);
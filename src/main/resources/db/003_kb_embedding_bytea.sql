@@ -0,0 +1,10 @@
+-- Binary vector storage: 16-byte header (magic, dtype, dim, model hash) + little-endian
+-- float32/float16 payload, see VectorCodec. ~3 KB per 768-dim chunk instead of ~8 KB of JSON.
+ALTER TABLE kb_embedding ADD COLUMN IF NOT EXISTS embedding_bin bytea;
+
+-- Existing rows are converted at startup by KbVectorBackfill (embedding_json -> embedding_bin,
+-- then embedding_json is cleared). The pgvector column (db/001) is then filled from
+-- embedding_bin, also at startup, when rag.rag.search-mode=pgvector. Once no row is left to convert:
+--   SELECT count(*) FROM kb_embedding WHERE embedding_bin IS NULL AND embedding_json IS NOT NULL;
+-- the JSON column can be dropped (together with KbEmbedding.embeddingJson):
+--   ALTER TABLE kb_embedding DROP COLUMN embedding_json;
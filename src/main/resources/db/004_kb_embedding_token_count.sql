@@ -0,0 +1,3 @@
+-- Estimated prompt tokens per chunk (TokenEstimator), filled at index time and used to pack
+-- the chat context into the model's window. NULL rows are estimated when loaded.
+ALTER TABLE kb_embedding ADD COLUMN IF NOT EXISTS token_count integer;
@@ -0,0 +1,70 @@
+package org.example.parkinformatique.Service.rag;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Dot product on the JDK Vector API (jdk.incubator.vector). Only loaded by {@code VectorMath}
+ * once the module is known to be present, so the app still starts without --add-modules.
+ */
+final class SimdDot {
+
+    private static final VectorSpecies<Float> S = FloatVector.SPECIES_PREFERRED;
+    // as many byte lanes as float lanes, so one load widens into one FloatVector (needs >= 8 lanes: 64 bits)
+    private static final VectorSpecies<Byte> B = S.length() >= 8
+            ? VectorSpecies.of(byte.class, VectorShape.forBitSize(S.length() * 8)) : null;
+
+    private SimdDot() {}
+
+    /** Below 4 lanes (no SIMD unit, or C2 intrinsics off) the scalar loop is faster. */
+    static boolean usable() {
+        return S.length() >= 4;
+    }
+
+    /** int8 rows need a byte species with as many lanes as S: 256-bit SIMD or wider. */
+    static boolean int8Usable() {
+        return B != null;
+    }
+
+    /** Float query against int8 codes (Quantizer's asymmetric dot product): bytes widened to floats, then FMA. */
+    static float dotInt8(float[] q, byte[] codes, int offset, int dim) {
+        int step = S.length();
+        FloatVector acc0 = FloatVector.zero(S);
+        FloatVector acc1 = FloatVector.zero(S);
+        int i = 0;
+        for (int bound = dim - 2 * step; i <= bound; i += 2 * step) {
+            FloatVector c0 = (FloatVector) ByteVector.fromArray(B, codes, offset + i).convertShape(VectorOperators.B2F, S, 0);
+            FloatVector c1 = (FloatVector) ByteVector.fromArray(B, codes, offset + i + step).convertShape(VectorOperators.B2F, S, 0);
+            acc0 = FloatVector.fromArray(S, q, i).fma(c0, acc0);
+            acc1 = FloatVector.fromArray(S, q, i + step).fma(c1, acc1);
+        }
+        for (int bound = S.loopBound(dim); i < bound; i += step) {
+            FloatVector c0 = (FloatVector) ByteVector.fromArray(B, codes, offset + i).convertShape(VectorOperators.B2F, S, 0);
+            acc0 = FloatVector.fromArray(S, q, i).fma(c0, acc0);
+        }
+        float s = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < dim; i++) s += q[i] * codes[offset + i];
+        return s;
+    }
+
+    static float dot(float[] q, float[] data, int offset, int dim) {
+        int step = S.length();
+        FloatVector acc0 = FloatVector.zero(S);
+        FloatVector acc1 = FloatVector.zero(S);
+        int i = 0;
+        // two independent accumulators hide the FMA latency
+        for (int bound = dim - 2 * step; i <= bound; i += 2 * step) {
+            acc0 = FloatVector.fromArray(S, q, i).fma(FloatVector.fromArray(S, data, offset + i), acc0);
+            acc1 = FloatVector.fromArray(S, q, i + step).fma(FloatVector.fromArray(S, data, offset + i + step), acc1);
+        }
+        for (int bound = S.loopBound(dim); i < bound; i += step) {
+            acc0 = FloatVector.fromArray(S, q, i).fma(FloatVector.fromArray(S, data, offset + i), acc0);
+        }
+        float s = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < dim; i++) s += q[i] * data[offset + i];
+        return s;
+    }
+}
@@ -0,0 +1,169 @@
+package org.example.parkinformatique.Service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmAdmissionTest {
+
+    private SimpleMeterRegistry registry;
+    private LlmAdmission admission;
+
+    @BeforeEach
+    void setUp() {
+        admission = admission(1, 2, Duration.ofMinutes(1));
+    }
+
+    private LlmAdmission admission(int maxConcurrent, int maxQueue, Duration queueTimeout) {
+        registry = new SimpleMeterRegistry();
+        LlmAdmission a = new LlmAdmission(registry);
+        ReflectionTestUtils.setField(a, "maxConcurrent", maxConcurrent);
+        ReflectionTestUtils.setField(a, "maxQueue", maxQueue);
+        ReflectionTestUtils.setField(a, "queueTimeout", queueTimeout);
+        a.initMetrics();
+        return a;
+    }
+
+    /** Subscribes to an admitted generation that only ends when the returned sink says so. */
+    private static Sinks.Empty<Void> start(LlmAdmission a, List<String> events, String name) {
+        Sinks.Empty<Void> done = Sinks.empty();
+        Flux<String> work = Flux.defer(() -> {
+            events.add(name + " started");
+            return done.asMono().thenMany(Flux.<String>empty());
+        });
+        a.admit(work, p -> name + "#" + p).subscribe(events::add, e -> events.add(name + " failed"));
+        return done;
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        List<String> events = new ArrayList<>();
+        start(admission, events, "a");
+        start(admission, events, "b");
+        start(admission, events, "c");
+        assertEquals(1, admission.runningCount());
+        assertEquals(2, admission.queueDepth());
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Sinks.Empty<Void> never = Sinks.empty();
+        admission.admit(never.asMono().then(Mono.just("d"))).subscribe(v -> {}, error::set);
+
+        assertTrue(LlmAdmission.isOverloaded(error.get()));
+        assertEquals(2, admission.queueDepth());
+        assertEquals(1.0, registry.get("rag.admission.rejected").counter().count());
+    }
+
+    @Test
+    void fifoHandoffWithPositions() {
+        List<String> events = new ArrayList<>();
+        LlmAdmission a = admission(1, 5, Duration.ofMinutes(1));
+        Sinks.Empty<Void> first = start(a, events, "a");
+        Sinks.Empty<Void> second = start(a, events, "b");
+        Sinks.Empty<Void> third = start(a, events, "c");
+        start(a, events, "d");
+        assertEquals(List.of("a started", "b#1", "c#2", "d#3"), events);
+
+        events.clear();
+        first.tryEmitEmpty();
+        assertEquals(List.of("b started", "c#1", "d#2"), events);
+
+        events.clear();
+        second.tryEmitEmpty();
+        assertEquals(List.of("c started", "d#1"), events);
+
+        events.clear();
+        third.tryEmitEmpty();
+        assertEquals(List.of("d started"), events);
+        assertEquals(1, a.runningCount());
+        assertEquals(0, a.queueDepth());
+    }
+
+    @Test
+    void cancellingRunningWorkReleasesItsSlot() {
+        List<String> events = new ArrayList<>();
+        Disposable running = admission.admit(Flux.<String>never(), null).subscribe();
+        start(admission, events, "b");
+        assertEquals(List.of("b#1"), events);
+
+        running.dispose();
+        assertEquals(List.of("b#1", "b started"), events);
+        assertEquals(1, admission.runningCount());
+        assertEquals(0, admission.queueDepth());
+    }
+
+    @Test
+    void cancellingQueuedWaiterLeavesTheQueue() {
+        List<String> events = new ArrayList<>();
+        Sinks.Empty<Void> first = start(admission, events, "a");
+        Disposable waiting = admission.admit(Flux.<String>never(), p -> "b#" + p).subscribe(events::add);
+        start(admission, events, "c");
+        assertEquals(List.of("a started", "b#1", "c#2"), events);
+
+        events.clear();
+        waiting.dispose();
+        assertEquals(List.of("c#1"), events);
+        assertEquals(1, admission.queueDepth());
+
+        events.clear();
+        first.tryEmitEmpty();
+        assertEquals(List.of("c started"), events);
+        assertEquals(1, admission.runningCount());
+        assertEquals(0, admission.queueDepth());
+    }
+
+    @Test
+    void errorsAndCompletionReleaseSlots() {
+        for (int i = 0; i < 10; i++) {
+            int n = i;
+            assertThrows(IllegalStateException.class,
+                    () -> admission.admit(Mono.<String>error(new IllegalStateException("boom " + n))).block());
+            assertEquals("ok", admission.admit(Mono.just("ok")).block());
+        }
+        assertEquals(0, admission.runningCount());
+        assertEquals(0, admission.queueDepth());
+    }
+
+    @Test
+    void queuedWorkFailingAfterHandoffReleasesItsSlot() {
+        List<String> events = new ArrayList<>();
+        Sinks.Empty<Void> first = start(admission, events, "a");
+        admission.admit(Flux.<String>error(new IllegalStateException("boom")), null)
+                .subscribe(v -> {}, e -> events.add("b failed"));
+        start(admission, events, "c");
+
+        events.clear();
+        first.tryEmitEmpty();
+        assertEquals(List.of("b failed", "c started"), events);
+        assertEquals(1, admission.runningCount());
+        assertEquals(0, admission.queueDepth());
+    }
+
+    @Test
+    void queueTimeoutRejectsAndLeavesTheQueue() throws InterruptedException {
+        LlmAdmission a = admission(1, 2, Duration.ofMillis(50));
+        start(a, new ArrayList<>(), "a");
+
+        Throwable e = assertThrows(RuntimeException.class,
+                () -> a.admit(Mono.just("late")).block(Duration.ofSeconds(5)));
+        assertTrue(LlmAdmission.isOverloaded(e));
+        // the waiter leaves in doFinally, on the timer thread, just after the error reached block()
+        for (int i = 0; i < 200 && a.queueDepth() > 0; i++) Thread.sleep(10);
+        assertEquals(0, a.queueDepth());
+        assertEquals(1, a.runningCount());
+        assertEquals(1.0, registry.get("rag.admission.rejected").counter().count());
+    }
+}
@@ -0,0 +1,164 @@
+package org.example.parkinformatique.Service.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Bm25IndexTest {
+
+    private static final String[] WORDS = {"imprimante", "reseau", "poste", "vpn", "session", "pilote",
+            "ecran", "serveur", "ticket", "cable", "wifi", "laserjet", "m404", "erreur", "0x80070005"};
+
+    @Test
+    void scoresMatchTheBm25Formula() {
+        Random rnd = new Random(1);
+        Bm25Index index = new Bm25Index();
+        Map<Long, String> corpus = new HashMap<>();
+        for (long id = 0; id < 300; id++) {
+            String text = randomText(rnd);
+            corpus.put(id, text);
+            index.add(chunk(id, id / 5, text));
+        }
+        for (int q = 0; q < 100; q++) {
+            String query = WORDS[rnd.nextInt(WORDS.length)] + " " + WORDS[rnd.nextInt(WORDS.length)];
+            assertRanking(reference(corpus, query), index.search(query, 10), 10);
+        }
+    }
+
+    @Test
+    void removedAndReplacedChunks() {
+        Bm25Index index = new Bm25Index();
+        index.add(chunk(1, 10, "imprimante laserjet hors ligne"));
+        index.add(chunk(2, 10, "redemarrer le spooler de l'imprimante"));
+        index.add(chunk(3, 20, "connexion vpn impossible"));
+        assertEquals(3, index.size());
+
+        index.remove(1);
+        assertEquals(List.of(2L), ids(index.search("laserjet imprimante", 5)));
+        index.remove(1); // unknown id: no-op
+        assertEquals(2, index.size());
+
+        // upsert: same id, new text; the old terms no longer match it
+        index.add(chunk(3, 20, "ecran noir au demarrage"));
+        assertTrue(index.search("vpn", 5).isEmpty());
+        assertEquals(List.of(3L), ids(index.search("ecran", 5)));
+
+        index.removeArticle(10);
+        assertTrue(index.search("imprimante", 5).isEmpty());
+        assertEquals(1, index.size());
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(0, index.termCount());
+        assertTrue(index.search("ecran", 5).isEmpty());
+    }
+
+    @Test
+    void scoresStayExactAcrossDeletesAndCompaction() {
+        Random rnd = new Random(2);
+        Bm25Index index = new Bm25Index();
+        Map<Long, String> corpus = new HashMap<>();
+        for (long id = 0; id < 3_000; id++) {
+            String text = randomText(rnd);
+            corpus.put(id, text);
+            index.add(chunk(id, id, text));
+        }
+        // enough removals to trigger compaction (tombstones > max(1024, live))
+        for (long id = 0; id < 2_000; id++) {
+            index.remove(id);
+            corpus.remove(id);
+        }
+        for (long id = 5_000; id < 5_100; id++) {
+            String text = randomText(rnd);
+            corpus.put(id, text);
+            index.add(chunk(id, id, text));
+        }
+        assertEquals(corpus.size(), index.size());
+        for (int q = 0; q < 50; q++) {
+            String query = WORDS[rnd.nextInt(WORDS.length)];
+            assertRanking(reference(corpus, query), index.search(query, 20), 20);
+        }
+    }
+
+    @Test
+    void termsAreFoldedAndCompoundsIndexedWhole() {
+        Map<String, Integer> tf = Bm25Index.termFrequencies("Écran HS: erreur 0x8007-0005 sur LaserJet-M404, écran a");
+        assertEquals(2, (int) tf.get("ecran"));
+        assertEquals(1, (int) tf.get("0x8007"));
+        assertEquals(1, (int) tf.get("0x80070005")); // glued form of 0x8007-0005
+        assertEquals(1, (int) tf.get("laserjetm404"));
+        assertNull(tf.get("a")); // single characters are dropped
+
+        Bm25Index index = new Bm25Index();
+        index.add(chunk(1, 1, "Code 0x8007-0005 à l'installation"));
+        index.add(chunk(2, 2, "code 0x8007 seul"));
+        assertEquals(1L, index.search("0x8007-0005", 2).get(0).chunk().id());
+        assertEquals(2, index.search("ERREUR 0x8007", 5).size());
+        assertTrue(index.search(null, 5).isEmpty());
+        assertTrue(index.search("inconnu", 5).isEmpty());
+    }
+
+    /** Top k of the full reference ranking, best first; ties may come in any order. */
+    private static void assertRanking(List<KbHit> expected, List<KbHit> actual, int k) {
+        assertEquals(Math.min(k, expected.size()), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            assertEquals(expected.get(i).score(), actual.get(i).score(), 1e-4f);
+            KbHit a = actual.get(i);
+            assertTrue(expected.stream().anyMatch(e -> e.chunk().id() == a.chunk().id()
+                    && Math.abs(e.score() - a.score()) < 1e-4f), "unexpected hit " + a.chunk().id());
+        }
+    }
+
+    /** Okapi BM25 (k1 = 1.2, b = 0.75) recomputed from the texts. */
+    private static List<KbHit> reference(Map<Long, String> corpus, String query) {
+        Map<Long, Map<String, Integer>> tfs = new HashMap<>();
+        double total = 0;
+        for (Map.Entry<Long, String> e : corpus.entrySet()) {
+            Map<String, Integer> tf = Bm25Index.termFrequencies(e.getValue());
+            tfs.put(e.getKey(), tf);
+            total += tf.values().stream().mapToInt(Integer::intValue).sum();
+        }
+        double avg = total / corpus.size();
+        int n = corpus.size();
+        List<KbHit> out = new ArrayList<>();
+        for (Map.Entry<Long, Map<String, Integer>> e : tfs.entrySet()) {
+            int len = e.getValue().values().stream().mapToInt(Integer::intValue).sum();
+            double s = 0;
+            boolean hit = false;
+            for (String t : Bm25Index.termFrequencies(query).keySet()) {
+                Integer tf = e.getValue().get(t);
+                if (tf == null) continue;
+                long df = tfs.values().stream().filter(m -> m.containsKey(t)).count();
+                double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+                s += idf * tf * 2.2 / (tf + 1.2 * (0.25 + 0.75 * len / avg));
+                hit = true;
+            }
+            if (hit) out.add(new KbHit(chunk(e.getKey(), e.getKey(), ""), (float) s));
+        }
+        out.sort((a, b) -> Float.compare(b.score(), a.score()));
+        return out;
+    }
+
+    private static List<Long> ids(List<KbHit> hits) {
+        return hits.stream().map(h -> h.chunk().id()).toList();
+    }
+
+    private static KbChunk chunk(long id, long articleId, String text) {
+        return new KbChunk(id, articleId, 0, text, TokenEstimator.estimate(text));
+    }
+
+    private static String randomText(Random rnd) {
+        StringBuilder sb = new StringBuilder();
+        int n = 3 + rnd.nextInt(30);
+        for (int i = 0; i < n; i++) sb.append(WORDS[rnd.nextInt(WORDS.length)]).append(' ');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.parkinformatique.Service.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+
+    private static final int DIM = 32;
+    private static final int N = 3_000;
+
+    @Test
+    void recallAgainstExactSearch() {
+        Random rnd = new Random(42);
+        float[][] data = clustered(rnd, N);
+        HnswIndex index = new HnswIndex(DIM, 16, 200);
+        for (int i = 0; i < N; i++) index.add(i, data[i]);
+        assertEquals(N, index.size());
+
+        int k = 10;
+        int hits = 0;
+        for (int q = 0; q < 100; q++) {
+            float[] query = noisy(rnd, data[rnd.nextInt(N)], 0.3f);
+            Set<Long> truth = exact(data, null, query, k);
+            List<Map.Entry<Long, Float>> found = index.search(query, k, 100);
+            assertEquals(k, found.size());
+            for (int i = 1; i < found.size(); i++) {
+                assertTrue(found.get(i - 1).getValue() >= found.get(i).getValue(), "not best first");
+            }
+            for (Map.Entry<Long, Float> e : found) {
+                if (truth.contains(e.getKey())) hits++;
+                assertEquals(cosine(query, data[e.getKey().intValue()]), e.getValue(), 1e-4f);
+            }
+        }
+        double recall = hits / (100.0 * k);
+        assertTrue(recall >= 0.95, "recall@10 = " + recall);
+    }
+
+    @Test
+    void removedLabelsNeverReturned() {
+        Random rnd = new Random(7);
+        float[][] data = clustered(rnd, N);
+        HnswIndex index = new HnswIndex(DIM, 16, 200);
+        for (int i = 0; i < N; i++) index.add(i, data[i]);
+
+        boolean[] gone = new boolean[N];
+        for (int i = 0; i < N; i += 3) {
+            assertTrue(index.remove(i));
+            gone[i] = true;
+        }
+        assertFalse(index.remove(0));
+        assertEquals(N - (N + 2) / 3, index.size());
+        assertEquals((N + 2) / 3 / (double) N, index.deletedRatio(), 1e-9);
+
+        int hits = 0;
+        for (int q = 0; q < 100; q++) {
+            float[] query = noisy(rnd, data[rnd.nextInt(N)], 0.3f);
+            Set<Long> truth = exact(data, gone, query, 10);
+            for (Map.Entry<Long, Float> e : index.search(query, 10, 100)) {
+                assertFalse(gone[e.getKey().intValue()], "removed label " + e.getKey() + " returned");
+                if (truth.contains(e.getKey())) hits++;
+            }
+        }
+        // deleted nodes still route traffic: recall holds
+        assertTrue(hits / 1000.0 >= 0.9, "recall@10 after deletes = " + hits / 1000.0);
+    }
+
+    @Test
+    void reAddReplacesTheVector() {
+        HnswIndex index = new HnswIndex(4, 8, 50);
+        index.add(1, new float[]{1, 0, 0, 0});
+        index.add(2, new float[]{0, 1, 0, 0});
+        index.add(1, new float[]{0, 0, 1, 0});
+        assertEquals(2, index.size());
+        List<Map.Entry<Long, Float>> top = index.search(new float[]{0, 0, 1, 0}, 1, 10);
+        assertEquals(1L, (long) top.get(0).getKey());
+        assertEquals(1f, top.get(0).getValue(), 1e-6f);
+    }
+
+    @Test
+    void edgeCases() {
+        HnswIndex index = new HnswIndex(4, 8, 50);
+        assertTrue(index.search(new float[]{1, 0, 0, 0}, 5, 10).isEmpty());
+        index.add(1, new float[]{1, 0, 0, 0});
+        assertEquals(1, index.search(new float[]{1, 0, 0, 0}, 5, 10).size());
+        assertTrue(index.search(new float[]{1, 0, 0}, 5, 10).isEmpty()); // wrong dimension
+        assertThrows(IllegalArgumentException.class, () -> index.add(2, new float[]{1, 0}));
+        index.remove(1);
+        assertTrue(index.search(new float[]{1, 0, 0, 0}, 5, 10).isEmpty());
+    }
+
+    private static Set<Long> exact(float[][] data, boolean[] gone, float[] query, int k) {
+        TopK top = TopK.select(data.length, k, i -> gone != null && gone[i] ? Float.NEGATIVE_INFINITY
+                : cosine(query, data[i]));
+        int[] rows = new int[k];
+        int n = top.drainDescending(rows, new float[k]);
+        Set<Long> out = new HashSet<>();
+        for (int i = 0; i < n; i++) out.add((long) rows[i]);
+        return out;
+    }
+
+    private static float cosine(float[] a, float[] b) {
+        return VectorMath.dot(VectorMath.normalize(a), VectorMath.normalize(b), 0, a.length);
+    }
+
+    /** Points around 20 centers: closer to real embeddings than uniform noise. */
+    private static float[][] clustered(Random rnd, int n) {
+        float[][] centers = new float[20][DIM];
+        for (float[] c : centers) for (int d = 0; d < DIM; d++) c[d] = (float) rnd.nextGaussian();
+        float[][] out = new float[n][];
+        for (int i = 0; i < n; i++) out[i] = noisy(rnd, centers[rnd.nextInt(centers.length)], 0.5f);
+        return out;
+    }
+
+    private static float[] noisy(Random rnd, float[] v, float sigma) {
+        float[] out = new float[v.length];
+        for (int d = 0; d < v.length; d++) out[d] = v[d] + (float) rnd.nextGaussian() * sigma;
+        return out;
+    }
+}
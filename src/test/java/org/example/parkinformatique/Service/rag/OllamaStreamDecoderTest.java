@@ -0,0 +1,128 @@
+package org.example.parkinformatique.Service.rag;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OllamaStreamDecoderTest {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final String STREAM = """
+            {"model":"llama3.2","created_at":"2025-01-01T00:00:00Z","response":"Redémarrez","done":false}
+            {"model":"llama3.2","response":" l’imprimante 🖨️","done":false,"extra":{"a":[1,{"response":"x"}]}}
+            {"model":"llama3.2","response":"","done":true,"context":[1,2,300000],"total_duration":12}
+            """;
+
+    @Test
+    void decodesEveryLineOfOneBuffer() {
+        List<OllamaChunk> chunks = decode(bytes(STREAM), STREAM.length() + 16);
+        assertEquals(3, chunks.size());
+        assertEquals("Redémarrez", chunks.get(0).response());
+        assertFalse(chunks.get(0).done());
+        assertNull(chunks.get(0).context());
+        assertEquals(" l’imprimante 🖨️", chunks.get(1).response()); // nested "response" is skipped
+        assertTrue(chunks.get(2).done());
+        assertArrayEquals(new int[]{1, 2, 300000}, chunks.get(2).context());
+    }
+
+    @Test
+    void sameResultWhateverTheBufferBoundaries() {
+        byte[] all = bytes(STREAM);
+        List<OllamaChunk> expected = decode(all, all.length);
+        // every split size, so lines and multi-byte characters are cut at every offset
+        for (int size = 1; size < all.length; size++) {
+            List<OllamaChunk> chunks = decode(all, size);
+            assertEquals(expected.size(), chunks.size(), "buffers of " + size);
+            for (int i = 0; i < chunks.size(); i++) {
+                assertEquals(expected.get(i).response(), chunks.get(i).response(), "buffers of " + size);
+                assertEquals(expected.get(i).done(), chunks.get(i).done());
+                assertTrue(Arrays.equals(expected.get(i).context(), chunks.get(i).context()));
+            }
+        }
+    }
+
+    @Test
+    void multiByteCharacterSplitAcrossBuffers() {
+        byte[] line = bytes("{\"response\":\"é€😀\",\"done\":false}\n");
+        int start = "{\"response\":\"".length(); // byte offset of 'é', then 2 + 3 + 4 bytes
+        for (int cut = start + 1; cut < start + 9; cut++) {
+            OllamaStreamDecoder decoder = new OllamaStreamDecoder(JSON);
+            List<OllamaChunk> out = new ArrayList<>();
+            decoder.feed(ByteBuffer.wrap(line, 0, cut), out::add);
+            assertTrue(out.isEmpty());
+            decoder.feed(ByteBuffer.wrap(line, cut, line.length - cut), out::add);
+            decoder.finish(out::add);
+            assertEquals(1, out.size());
+            assertEquals("é€😀", out.get(0).response(), "cut at byte " + cut);
+        }
+    }
+
+    @Test
+    void chatMessageContent() {
+        List<OllamaChunk> chunks = decode(bytes("""
+                {"model":"m","message":{"role":"assistant","content":"Bonjour","images":null},"done":false}
+                {"model":"m","message":{"role":"assistant","content":""},"done":true,"eval_count":3}
+                """), 7);
+        assertEquals(2, chunks.size());
+        assertEquals("Bonjour", chunks.get(0).response());
+        assertEquals("", chunks.get(1).response());
+        assertTrue(chunks.get(1).done());
+    }
+
+    @Test
+    void lastLineWithoutNewline() {
+        OllamaStreamDecoder decoder = new OllamaStreamDecoder(JSON);
+        List<OllamaChunk> out = new ArrayList<>();
+        decoder.feed(ByteBuffer.wrap(bytes("{\"response\":\"a\",\"done\":false}\n{\"response\":\"b\",\"done\":true}")), out::add);
+        decoder.finish(out::add);
+        assertEquals(2, out.size());
+        assertEquals("b", out.get(1).response());
+        assertTrue(out.get(1).done());
+    }
+
+    @Test
+    void truncatedLastLineFailsOnFinish() {
+        OllamaStreamDecoder decoder = new OllamaStreamDecoder(JSON);
+        List<OllamaChunk> out = new ArrayList<>();
+        decoder.feed(ByteBuffer.wrap(bytes("{\"response\":\"a\",\"done\":false}\n{\"response\":\"b")), out::add);
+        assertEquals(1, out.size());
+        assertThrows(UncheckedIOException.class, () -> decoder.finish(out::add));
+    }
+
+    @Test
+    void errorChunk() {
+        List<OllamaChunk> chunks = decode(bytes("{\"error\":\"model 'x' not found\"}\n"), 5);
+        assertEquals(1, chunks.size());
+        assertEquals("model 'x' not found", chunks.get(0).error());
+        assertEquals("", chunks.get(0).response());
+        assertFalse(chunks.get(0).done());
+    }
+
+    private static List<OllamaChunk> decode(byte[] all, int bufferSize) {
+        OllamaStreamDecoder decoder = new OllamaStreamDecoder(JSON);
+        List<OllamaChunk> out = new ArrayList<>();
+        for (int i = 0; i < all.length; i += bufferSize) {
+            decoder.feed(ByteBuffer.wrap(all, i, Math.min(bufferSize, all.length - i)), out::add);
+        }
+        decoder.finish(out::add);
+        return out;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
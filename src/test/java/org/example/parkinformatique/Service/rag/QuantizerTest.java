@@ -0,0 +1,71 @@
+package org.example.parkinformatique.Service.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QuantizerTest {
+
+    @Test
+    void int8DotMatchesScalarForEveryTailLength() {
+        Random rnd = new Random(1);
+        byte[] codes = new byte[4_096];
+        rnd.nextBytes(codes);
+        float[] q = new float[1_536];
+        for (int i = 0; i < q.length; i++) q[i] = (float) rnd.nextGaussian();
+        for (int dim = 1; dim <= 80; dim++) check(q, codes, 3, dim);
+        check(q, codes, 0, 768);
+        check(q, codes, 1_000, 1_536);
+    }
+
+    @Test
+    void int8ScoreApproximatesCosine() {
+        Random rnd = new Random(2);
+        float[] v = unit(rnd, 768);
+        float[] q = unit(rnd, 768);
+        byte[] codes = new byte[768];
+        float scale = Quantizer.quantizeInt8(v, codes, 0);
+        float exact = VectorMath.dot(q, v, 0, 768);
+        assertEquals(exact, scale * Quantizer.dotInt8(q, codes, 0, 768), 0.01f);
+    }
+
+    @Test
+    void halfRowsAreACloseRerankSource() {
+        Random rnd = new Random(3);
+        float[] q = unit(rnd, 768);
+        short[] halves = new short[2 * 768];
+        for (int r = 0; r < 50; r++) {
+            float[] v = unit(rnd, 768);
+            Quantizer.toHalves(v, halves, 768);
+            assertEquals(VectorMath.dot(q, v, 0, 768), Quantizer.dotHalf(q, halves, 768, 768), 1e-3f);
+        }
+    }
+
+    @Test
+    void signBitsAndHamming() {
+        float[] v = new float[70];
+        for (int i = 0; i < v.length; i++) v[i] = i % 3 == 0 ? 1 : -1;
+        long[] a = new long[Quantizer.words(70)];
+        long[] b = new long[Quantizer.words(70)];
+        Quantizer.signBits(v, a, 0);
+        for (int i = 0; i < v.length; i++) v[i] = -v[i];
+        Quantizer.signBits(v, b, 0);
+        assertEquals(2, Quantizer.words(70));
+        assertEquals(0, Quantizer.hamming(a, a, 0, 2));
+        assertEquals(70, Quantizer.hamming(a, b, 0, 2));
+    }
+
+    private static void check(float[] q, byte[] codes, int off, int dim) {
+        float expected = Quantizer.dotInt8Scalar(q, codes, off, dim);
+        // integer codes, different summation order: relative float rounding only
+        assertEquals(expected, Quantizer.dotInt8(q, codes, off, dim), 1e-4f * Math.max(1f, dim * 127f), "dim " + dim);
+    }
+
+    private static float[] unit(Random rnd, int dim) {
+        float[] v = new float[dim];
+        for (int i = 0; i < dim; i++) v[i] = (float) rnd.nextGaussian();
+        return VectorMath.normalize(v);
+    }
+}
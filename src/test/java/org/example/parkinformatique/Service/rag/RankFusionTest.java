@@ -0,0 +1,59 @@
+package org.example.parkinformatique.Service.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankFusionTest {
+
+    private static final Function<Long, Long> ID = Function.identity();
+
+    @Test
+    void itemsInBothRankingsComeFirst() {
+        List<Long> dense = List.of(1L, 2L, 3L, 4L);
+        List<Long> keyword = List.of(5L, 3L, 2L);
+        // 2: 1/62 + 1/63, 3: 1/63 + 1/62, 1: 1/61, 5: 1/61, 4: 1/64
+        List<Long> fused = RankFusion.rrf(List.of(dense, keyword), ID, 60, 10);
+        assertEquals(List.of(2L, 3L, 1L, 5L, 4L), fused);
+    }
+
+    @Test
+    void scoresFollowTheReciprocalRankFormula() {
+        List<Long> a = List.of(10L, 20L, 30L);
+        List<Long> b = List.of(30L, 40L);
+        List<Long> c = List.of(40L, 30L, 10L);
+        // 30: 1/3 + 1/1 + 1/2, 40: 1/2 + 1/1, 10: 1/1 + 1/3, 20: 1/2 (k = 0)
+        assertEquals(List.of(30L, 40L, 10L, 20L), RankFusion.rrf(List.of(a, b, c), ID, 0, 10));
+    }
+
+    @Test
+    void limitAndEmptyInputs() {
+        List<Long> a = List.of(1L, 2L, 3L);
+        assertEquals(List.of(1L, 2L), RankFusion.rrf(List.of(a), ID, 60, 2));
+        assertTrue(RankFusion.rrf(List.of(a), ID, 60, 0).isEmpty());
+        assertTrue(RankFusion.rrf(List.of(a), ID, 60, -1).isEmpty());
+        assertTrue(RankFusion.rrf(List.of(), ID, 60, 5).isEmpty());
+        assertEquals(List.of(1L, 2L, 3L), RankFusion.rrf(List.of(List.of(), a), ID, 60, 5));
+    }
+
+    @Test
+    void duplicatesAreMergedKeepingTheFirstInstance() {
+        KbChunk fromDense = new KbChunk(7, 1, 0, "dense", 1);
+        KbChunk fromKeyword = new KbChunk(7, 1, 0, "keyword", 1);
+        KbChunk other = new KbChunk(8, 1, 1, "other", 1);
+        List<KbChunk> fused = RankFusion.rrf(List.of(List.of(fromDense), List.of(other, fromKeyword)), KbChunk::id, 60, 5);
+        assertEquals(2, fused.size());
+        assertTrue(fused.get(0) == fromDense);
+        assertTrue(fused.get(1) == other);
+    }
+
+    @Test
+    void tiesKeepFirstSeenOrder() {
+        assertEquals(List.of(1L, 2L), RankFusion.rrf(List.of(List.of(1L), List.of(2L)), ID, 60, 5));
+        assertEquals(List.of(2L, 1L), RankFusion.rrf(List.of(List.of(2L), List.of(1L)), ID, 60, 5));
+    }
+}
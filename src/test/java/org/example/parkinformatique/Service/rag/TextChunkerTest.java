@@ -0,0 +1,165 @@
+package org.example.parkinformatique.Service.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextChunkerTest {
+
+    private static final String[] WORDS = {"imprimante", "réseau", "poste", "ticket", "redémarrer", "le", "la",
+            "vérifier", "câble", "pilote", "serveur", "VPN", "mot", "de", "passe", "écran", "session"};
+
+    @Test
+    void chunksAreBoundedTrimmedAndNeverEmpty() {
+        Random rnd = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            int max = 40 + rnd.nextInt(300);
+            TextChunker chunker = new TextChunker(max, rnd.nextInt(max / 3));
+            List<String> chunks = chunker.split(randomArticle(rnd, 2_000 + rnd.nextInt(4_000)));
+            assertFalse(chunks.isEmpty());
+            for (String c : chunks) {
+                assertFalse(c.isEmpty(), "empty chunk");
+                assertTrue(c.length() <= max, "chunk of " + c.length() + " > " + max);
+                assertEquals(c.strip(), c);
+            }
+        }
+    }
+
+    @Test
+    void blankInputGivesNoChunk() {
+        TextChunker chunker = new TextChunker(100, 20);
+        assertTrue(chunker.split("").isEmpty());
+        assertTrue(chunker.split(" \n\r\n\t ").isEmpty());
+        assertTrue(chunker.split(null).isEmpty());
+    }
+
+    @Test
+    void wordLongerThanMaxCharsIsCutMidWord() {
+        String word = "x".repeat(250);
+        List<String> chunks = new TextChunker(100, 20).split("début " + word + " fin");
+        assertEquals("début", chunks.get(0));
+        StringBuilder rebuilt = new StringBuilder();
+        for (String c : chunks.subList(1, chunks.size())) {
+            assertTrue(c.length() <= 100);
+            rebuilt.append(c);
+        }
+        // no overlap is repeated inside the word: the pieces glue back together
+        assertEquals(word + " fin", rebuilt.toString());
+    }
+
+    @Test
+    void overlapStartsOnAWordBoundary() {
+        StringBuilder text = new StringBuilder();
+        Random rnd = new Random(7);
+        for (int i = 0; i < 60; i++) text.append(sentence(rnd)).append(' ');
+        List<String> chunks = new TextChunker(200, 40).split(text);
+        assertTrue(chunks.size() > 3);
+        for (int i = 1; i < chunks.size(); i++) {
+            String prev = chunks.get(i - 1);
+            String next = chunks.get(i);
+            int k = overlap(prev, next);
+            assertTrue(k > 0 && k <= 40, "overlap of " + k + " chars between chunk " + (i - 1) + " and " + i);
+            assertTrue(Character.isWhitespace(prev.charAt(prev.length() - k - 1)), "overlap starts mid-word: " + next);
+        }
+    }
+
+    @Test
+    void overlapPrefersASentenceStart() {
+        String text = "Premier point à vérifier sur le poste. Second point: redémarrer le service réseau puis "
+                + "ouvrir une session. Troisième point très long sur le pilote de l'imprimante partagée du bureau.";
+        List<String> chunks = new TextChunker(100, 25).split(text);
+        assertTrue(chunks.size() >= 2);
+        for (int i = 1; i < chunks.size(); i++) {
+            String prev = chunks.get(i - 1);
+            int k = overlap(prev, chunks.get(i));
+            if (k == 0) continue;
+            String head = prev.substring(prev.length() - k);
+            boolean sentence = prev.charAt(prev.length() - k - 2) == '.';
+            // the word fallback is only taken when no sentence starts in the overlap window
+            assertTrue(sentence || !head.contains(". "), "overlap '" + head + "' skipped a sentence start");
+        }
+    }
+
+    @Test
+    void headingStartsANewChunk() {
+        String intro = "Introduction sur le parc informatique et les postes du service comptable. ";
+        String text = intro + "\n# Imprimantes\nLes imprimantes réseau sont gérées par le serveur d'impression.";
+        List<String> chunks = new TextChunker(200, 30).split(text);
+        assertEquals(2, chunks.size());
+        assertEquals(intro.strip(), chunks.get(0));
+        assertTrue(chunks.get(1).startsWith("# Imprimantes"));
+    }
+
+    @Test
+    void listItemsAreNotSplit() {
+        StringBuilder text = new StringBuilder("Étapes :\n");
+        for (int i = 1; i <= 30; i++) {
+            text.append(i % 2 == 0 ? "- " : i + ". ").append("vérifier le câble réseau du poste ").append(i).append('\n');
+        }
+        List<String> chunks = new TextChunker(160, 30).split(text);
+        assertTrue(chunks.size() > 3);
+        for (int i = 0; i < chunks.size(); i++) {
+            String[] lines = chunks.get(i).split("\n");
+            // after the overlap (tail of the previous item, on its own line), every line is a whole item
+            for (int l = i == 0 ? 0 : 1; l < lines.length; l++) {
+                assertTrue(lines[l].matches("(Étapes :|(- |\\d+\\. )vérifier le câble réseau du poste \\d+)"),
+                        "cut inside '" + lines[l] + "'");
+            }
+            if (i > 0) assertTrue(chunks.get(i - 1).endsWith(lines[0]));
+        }
+    }
+
+    @Test
+    void incrementalAppendMatchesSplit() {
+        Random rnd = new Random(3);
+        String article = randomArticle(rnd, 5_000);
+        TextChunker chunker = new TextChunker(180, 40);
+        List<String> streamed = new ArrayList<>();
+        TextChunker.Splitter s = chunker.start(streamed::add);
+        for (int i = 0; i < article.length(); ) {
+            int n = Math.min(article.length() - i, 1 + rnd.nextInt(64));
+            s.append(article.substring(i, i + n));
+            i += n;
+        }
+        s.finish();
+        assertEquals(chunker.split(article), streamed);
+    }
+
+    /** Longest suffix of prev that is a prefix of next. */
+    private static int overlap(String prev, String next) {
+        for (int k = Math.min(prev.length() - 1, next.length()); k > 0; k--) {
+            if (prev.endsWith(next.substring(0, k))) return k;
+        }
+        return 0;
+    }
+
+    private static String sentence(Random rnd) {
+        StringBuilder sb = new StringBuilder();
+        int n = 4 + rnd.nextInt(8);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+        }
+        return sb.append('.').toString();
+    }
+
+    private static String randomArticle(Random rnd, int length) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length) {
+            switch (rnd.nextInt(6)) {
+                case 0 -> sb.append("\n## ").append(WORDS[rnd.nextInt(WORDS.length)]).append('\n');
+                case 1 -> sb.append("\n- ").append(sentence(rnd));
+                case 2 -> sb.append("\n\n");
+                case 3 -> sb.append(' ').append("x".repeat(rnd.nextInt(120)));
+                default -> sb.append(' ').append(sentence(rnd));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.parkinformatique.Service.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TopKTest {
+
+    @Test
+    void matchesSortReference() {
+        Random rnd = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            int n = rnd.nextInt(3_000);
+            int k = 1 + rnd.nextInt(64);
+            float[] s = new float[n];
+            for (int i = 0; i < n; i++) s[i] = rnd.nextFloat() * 2 - 1;
+            check(s, k);
+        }
+    }
+
+    @Test
+    void ties() {
+        Random rnd = new Random(5);
+        for (int round = 0; round < 100; round++) {
+            int n = 1 + rnd.nextInt(500);
+            float[] s = new float[n];
+            for (int i = 0; i < n; i++) s[i] = rnd.nextInt(4) / 4f; // four distinct values
+            check(s, 1 + rnd.nextInt(40));
+        }
+        float[] same = new float[100];
+        Arrays.fill(same, 0.5f);
+        check(same, 10);
+    }
+
+    @Test
+    void kLargerThanN() {
+        float[] s = {0.1f, 0.9f, -0.3f, 0.5f};
+        int[] rows = new int[10];
+        float[] scores = new float[10];
+        int count = TopK.select(s.length, 10, i -> s[i]).drainDescending(rows, scores);
+        assertEquals(4, count);
+        assertArrayEquals(new int[]{1, 3, 0, 2}, Arrays.copyOf(rows, count));
+        check(s, 10);
+    }
+
+    @Test
+    void emptyInputAndZeroK() {
+        assertEquals(0, TopK.select(0, 5, i -> 1f).size());
+        assertEquals(0, TopK.selectParallel(0, 5, i -> 1f, ForkJoinPool.commonPool()).size());
+        assertEquals(0, TopK.select(100, 0, i -> i).size());
+        assertEquals(0, TopK.selectParallel(50_000, 0, i -> i, ForkJoinPool.commonPool()).size());
+    }
+
+    @Test
+    void parallelAcrossManyLeaves() {
+        Random rnd = new Random(9);
+        float[] s = new float[100_000];
+        for (int i = 0; i < s.length; i++) s[i] = rnd.nextInt(1_000) / 1_000f;
+        check(s, 100);
+        check(s, 1);
+    }
+
+    /** Both select and selectParallel keep the k best scores, best first, each with its own row. */
+    private static void check(float[] s, int k) {
+        Integer[] order = new Integer[s.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> s[i]).reversed());
+        int expected = Math.min(k, s.length);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (TopK top : new TopK[]{TopK.select(s.length, k, i -> s[i]),
+                    TopK.selectParallel(s.length, k, i -> s[i], pool)}) {
+                int[] rows = new int[k];
+                float[] scores = new float[k];
+                int count = top.drainDescending(rows, scores);
+                assertEquals(expected, count);
+                boolean[] seen = new boolean[s.length];
+                for (int j = 0; j < count; j++) {
+                    // ties may keep any of the equal rows, but never the same row twice
+                    assertEquals(s[order[j]], scores[j], 0f);
+                    assertEquals(s[rows[j]], scores[j], 0f);
+                    assertFalse(seen[rows[j]], "row " + rows[j] + " twice");
+                    seen[rows[j]] = true;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
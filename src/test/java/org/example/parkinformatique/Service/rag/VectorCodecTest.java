@@ -0,0 +1,139 @@
+package org.example.parkinformatique.Service.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VectorCodecTest {
+
+    @Test
+    void float32RoundTripIsExact() {
+        float[] v = randomVector(new Random(1), 768);
+        int hash = VectorCodec.modelHash("nomic-embed-text");
+        byte[] data = VectorCodec.encode(v, VectorCodec.Dtype.FLOAT32, hash);
+        assertEquals(VectorCodec.HEADER_BYTES + 768 * 4, data.length);
+        assertTrue(VectorCodec.isValid(data));
+        assertEquals(768, VectorCodec.dim(data));
+        assertEquals(hash, VectorCodec.modelHashOf(data));
+        assertArrayEquals(v, VectorCodec.decode(data), 0f);
+    }
+
+    @Test
+    void float16RoundTripWithinHalfPrecision() {
+        float[] v = randomVector(new Random(2), 768);
+        byte[] data = VectorCodec.encode(v, VectorCodec.Dtype.FLOAT16, 0);
+        assertEquals(VectorCodec.HEADER_BYTES + 768 * 2, data.length);
+        assertTrue(VectorCodec.isValid(data));
+        float[] back = VectorCodec.decode(data);
+        for (int i = 0; i < v.length; i++) {
+            // 11 significant bits; components of a unit vector are well above the subnormal range here
+            assertEquals(v[i], back[i], Math.max(Math.abs(v[i]) / 2048f, 1e-7f), "component " + i);
+        }
+    }
+
+    @Test
+    void everyHalfSurvivesARoundTrip() {
+        for (int h = 0; h < 0x10000; h++) {
+            float f = VectorCodec.fromHalf((short) h);
+            if (Float.isNaN(f)) {
+                assertTrue(Float.isNaN(VectorCodec.fromHalf(VectorCodec.toHalf(f))));
+                continue;
+            }
+            assertEquals(h, VectorCodec.toHalf(f) & 0xFFFF, "half 0x" + Integer.toHexString(h));
+        }
+    }
+
+    @Test
+    void toHalfRoundsToNearest() {
+        Random rnd = new Random(3);
+        for (int i = 0; i < 200_000; i++) {
+            float f = (float) (rnd.nextGaussian() * Math.pow(2, rnd.nextInt(40) - 25));
+            if (Math.abs(f) > 65504f) continue; // past the largest half, rounding to infinity is IEEE's rule
+            short h = VectorCodec.toHalf(f);
+            float err = Math.abs(VectorCodec.fromHalf(h) - f);
+            // no neighbouring half is closer (the sign bit keeps neighbours on the same side)
+            for (int d = -1; d <= 1; d += 2) {
+                int n = (h & 0x7FFF) + d;
+                if (n < 0 || n >= 0x7C00) continue;
+                float other = VectorCodec.fromHalf((short) ((h & 0x8000) | n));
+                assertTrue(err <= Math.abs(other - f), f + " -> " + VectorCodec.fromHalf(h) + ", " + other + " is closer");
+            }
+        }
+        assertEquals(Float.POSITIVE_INFINITY, VectorCodec.fromHalf(VectorCodec.toHalf(70_000f)), 0f);
+        assertEquals(Float.NEGATIVE_INFINITY, VectorCodec.fromHalf(VectorCodec.toHalf(Float.NEGATIVE_INFINITY)), 0f);
+        assertEquals(0x8000, VectorCodec.toHalf(-0f) & 0xFFFF);
+        assertEquals(0, VectorCodec.toHalf(1e-10f));
+    }
+
+    @Test
+    void malformedDataIsRejected() {
+        byte[] good = VectorCodec.encode(new float[]{1, 2, 3}, VectorCodec.Dtype.FLOAT32, 7);
+        assertTrue(VectorCodec.isValid(good));
+
+        assertFalse(VectorCodec.isValid(null));
+        assertFalse(VectorCodec.isValid(new byte[VectorCodec.HEADER_BYTES - 1]));
+        assertNull(VectorCodec.decode(new byte[0]));
+
+        byte[] magic = good.clone();
+        magic[0] ^= 1;
+        assertFalse(VectorCodec.isValid(magic));
+
+        byte[] dtype = good.clone();
+        dtype[4] = 2;
+        assertFalse(VectorCodec.isValid(dtype));
+
+        byte[] halfHeader = good.clone();
+        halfHeader[4] = 1; // float16 header on a float32 payload: length no longer matches dim
+        assertFalse(VectorCodec.isValid(halfHeader));
+
+        assertFalse(VectorCodec.isValid(Arrays.copyOf(good, good.length - 1)));
+        assertFalse(VectorCodec.isValid(Arrays.copyOf(good, good.length + 4)));
+
+        byte[] negativeDim = good.clone();
+        negativeDim[11] = (byte) 0x80;
+        assertFalse(VectorCodec.isValid(negativeDim));
+        assertNull(VectorCodec.decode(negativeDim));
+
+        // 16 + 0x40000004 * 4 wraps to 32 in int arithmetic: the length check alone would accept it
+        byte[] overflow = new byte[VectorCodec.HEADER_BYTES + 16];
+        System.arraycopy(good, 0, overflow, 0, VectorCodec.HEADER_BYTES);
+        overflow[8] = 4;
+        overflow[9] = 0;
+        overflow[10] = 0;
+        overflow[11] = 0x40;
+        assertFalse(VectorCodec.isValid(overflow));
+        assertNull(VectorCodec.decode(overflow));
+
+        byte[] tooLarge = VectorCodec.encode(new float[0], VectorCodec.Dtype.FLOAT16, 0);
+        tooLarge[10] = 2; // dim 131 072 with an empty payload
+        assertFalse(VectorCodec.isValid(tooLarge));
+    }
+
+    @Test
+    void headerFields() {
+        assertEquals(VectorCodec.Dtype.FLOAT16, VectorCodec.dtype(" Float16 "));
+        assertEquals(VectorCodec.Dtype.FLOAT32, VectorCodec.dtype("float32"));
+        assertEquals(VectorCodec.Dtype.FLOAT32, VectorCodec.dtype(null));
+        assertEquals(0, VectorCodec.modelHash(null));
+        assertEquals(0, VectorCodec.modelHash(" "));
+        assertEquals(VectorCodec.modelHash("nomic-embed-text"), VectorCodec.modelHash("nomic-embed-text"));
+        assertTrue(VectorCodec.modelHash("nomic-embed-text") != VectorCodec.modelHash("mxbai-embed-large"));
+
+        byte[] empty = VectorCodec.encode(new float[0], VectorCodec.Dtype.FLOAT16, 0);
+        assertTrue(VectorCodec.isValid(empty));
+        assertEquals(0, VectorCodec.decode(empty).length);
+    }
+
+    private static float[] randomVector(Random rnd, int dim) {
+        float[] v = new float[dim];
+        for (int i = 0; i < dim; i++) v[i] = (float) rnd.nextGaussian();
+        return VectorMath.normalize(v);
+    }
+}
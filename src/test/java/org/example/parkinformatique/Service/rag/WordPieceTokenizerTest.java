@@ -0,0 +1,79 @@
+package org.example.parkinformatique.Service.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WordPieceTokenizerTest {
+
+    // ids of src/test/resources/rag/vocab.txt (line number - 1)
+    private static final int UNK = 1, CLS = 2, SEP = 3, BANG = 7, APOS = 8, L = 10, IMPRIMANTE = 11,
+            RESEAU = 15, LE = 16, NE = 17, PAS = 18, MARCHE = 19, R = 20, POSTE = 22, S = 23, ZH = 27, WEN = 28,
+            WIFI = 29;
+
+    private static WordPieceTokenizer tokenizer(boolean lowerCase) throws Exception {
+        return WordPieceTokenizer.load(Path.of(WordPieceTokenizerTest.class.getResource("/rag/vocab.txt").toURI()), lowerCase);
+    }
+
+    @Test
+    void lowerCasesStripsAccentsAndSplitsPunctuation() throws Exception {
+        assertArrayEquals(new int[]{CLS, L, APOS, IMPRIMANTE, RESEAU, NE, MARCHE, PAS, BANG, SEP},
+                tokenizer(true).encode("L'imprimante Réseau ne\tmarche pas!", 512));
+    }
+
+    @Test
+    void greedyLongestMatchWithContinuations() throws Exception {
+        WordPieceTokenizer t = tokenizer(true);
+        // "imprimante" + "##s" wins over "imprim" + "##antes": the longest prefix is taken first
+        assertArrayEquals(new int[]{CLS, IMPRIMANTE, S, POSTE, S, MARCHE, R, SEP}, t.encode("imprimantes postes marcher", 512));
+    }
+
+    @Test
+    void unknownWordsBecomeOneUnk() throws Exception {
+        WordPieceTokenizer t = tokenizer(true);
+        // a word is [UNK] as a whole as soon as one of its pieces is missing
+        assertArrayEquals(new int[]{CLS, UNK, LE, UNK, SEP}, t.encode("imprimantex le zzz", 512));
+        assertArrayEquals(new int[]{CLS, UNK, SEP}, t.encode("le".repeat(51), 512)); // over 100 chars
+    }
+
+    @Test
+    void caseIsKeptWithoutLowerCasing() throws Exception {
+        WordPieceTokenizer t = tokenizer(false);
+        assertArrayEquals(new int[]{CLS, UNK, WIFI, SEP}, t.encode("Wifi wifi", 512));
+        assertArrayEquals(new int[]{CLS, UNK, SEP}, t.encode("réseau", 512));
+    }
+
+    @Test
+    void cjkCharactersAndControlCharacters() throws Exception {
+        WordPieceTokenizer t = tokenizer(true);
+        assertArrayEquals(new int[]{CLS, ZH, WEN, SEP}, t.encode("中文", 512));
+        assertArrayEquals(new int[]{CLS, LE, POSTE, SEP}, t.encode("le\u0000 po\u200Bste\uFFFD", 512)); // NUL, zero-width space, U+FFFD
+        assertArrayEquals(new int[]{CLS, SEP}, t.encode(null, 512));
+        assertArrayEquals(new int[]{CLS, SEP}, t.encode(" \n ", 512));
+    }
+
+    @Test
+    void truncatesToMaxTokensKeepingSep() throws Exception {
+        WordPieceTokenizer t = tokenizer(true);
+        assertArrayEquals(new int[]{CLS, LE, POSTE, SEP}, t.encode("le poste ne marche pas", 4));
+        // truncation may stop inside a word, like the reference implementation
+        assertArrayEquals(new int[]{CLS, IMPRIMANTE, SEP}, t.encode("imprimantes le", 3));
+        assertArrayEquals(new int[]{CLS, SEP}, t.encode("le poste", 2));
+        assertArrayEquals(new int[]{CLS, SEP}, t.encode("le poste", 0));
+
+        int[] many = t.encode("le ".repeat(300), 2048); // past the initial buffer
+        assertEquals(302, many.length);
+        assertEquals(SEP, many[301]);
+        assertEquals(256, t.encode("le ".repeat(300), 256).length);
+    }
+
+    @Test
+    void vocabWithoutSpecialTokensIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new WordPieceTokenizer(Map.of("[CLS]", 0, "[SEP]", 1), true));
+    }
+}